@@ -0,0 +1,166 @@
+package application;
+
+import chess.ChessException;
+import chess.ChessMatch;
+import chess.Fen;
+import chess.Move;
+import chess.engine.MoveOrderer;
+import chess.engine.Search;
+import chess.engine.TranspositionTable;
+import chess.metrics.MetricsReporter;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// headless analysis of a file with one FEN per line, written as CSV in input order:
+// java application.BatchAnalysis <input> <output.csv> [--threads N] [--depth D] [--nodes N] [--hash MB]
+public class BatchAnalysis {
+
+    private static final String HEADER = "index,fen,bestmove,score_cp,mate_in,depth,nodes,time_ms,error";
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+
+        if (args.length < 2) {
+            System.err.println("Usage: BatchAnalysis <input> <output.csv> [--threads N] [--depth D] [--nodes N] [--hash MB]");
+            System.exit(2);
+        }
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        int depth = 0;
+        long nodes = 0;
+        int hash = 4;
+
+        for (int i = 2; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--threads":
+                    threads = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--depth":
+                    depth = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--nodes":
+                    nodes = Long.parseLong(args[i + 1]);
+                    break;
+                case "--hash":
+                    hash = Integer.parseInt(args[i + 1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        MetricsReporter.start();
+
+        // without an explicit depth a node budget searches as deep as it gets, otherwise depth 4
+        int maxDepth = (depth > 0) ? depth : (nodes > 0) ? MoveOrderer.MAX_PLY - 1 : 4;
+        long nodeLimit = nodes;
+        int hashSize = hash;
+        ThreadLocal<Worker> workers = ThreadLocal.withInitial(() -> new Worker(hashSize));
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+
+        AtomicLong failed = new AtomicLong();
+        long start = System.nanoTime();
+        long count = 0;
+
+        try (BufferedReader in = Files.newBufferedReader(Paths.get(args[0]));
+             BufferedWriter out = Files.newBufferedWriter(Paths.get(args[1]))) {
+
+            out.write(HEADER);
+            out.write('\n');
+            ReorderBuffer buffer = new ReorderBuffer(out, threads * 64);
+
+            String line;
+            while ((line = in.readLine()) != null) {
+
+                String fen = line.trim();
+                if (fen.isEmpty() || fen.startsWith("#"))
+                    continue;
+
+                long index = count++;
+                buffer.reserve();
+                pool.execute(() -> analyze(workers, buffer, failed, index, fen, maxDepth, nodeLimit));
+            }
+
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+
+        double seconds = Math.max(1e-9, (System.nanoTime() - start) / 1e9);
+        System.err.printf("%d positions in %.1f s, %.0f positions/hour/thread%n",
+                count, seconds, count * 3600 / seconds / threads);
+
+        if (failed.get() > 0) {
+            System.err.println(failed.get() + " positions failed, see the error column");
+            System.exit(1);
+        }
+    }
+
+    // the index is completed whatever happens, a missing row would hold back every row after it
+    private static void analyze(ThreadLocal<Worker> workers, ReorderBuffer buffer, AtomicLong failed,
+            long index, String fen, int depth, long nodes) {
+
+        String row = index + "," + fen + ",,,,,,,";
+        try {
+            row = workers.get().analyze(index, fen, depth, nodes);
+        } catch (RuntimeException e) {
+            failed.incrementAndGet();
+            row += e.toString().replace(',', ';');
+            System.err.println("Position " + index + " failed: " + e);
+            // the worker may be left in the middle of a search, the next position gets a fresh one
+            workers.remove();
+        } finally {
+            buffer.complete(index, row);
+        }
+    }
+
+    // each pool thread owns one match and one search, nothing is shared between them
+    private static class Worker {
+
+        private final ChessMatch chessMatch = new ChessMatch();
+        private final Search search;
+
+        Worker(int hash) {
+            this.search = new Search(new TranspositionTable(hash));
+        }
+
+        String analyze(long index, String fen, int depth, long nodes) {
+
+            StringBuilder row = new StringBuilder(160).append(index).append(',').append(fen).append(',');
+            long start = System.nanoTime();
+
+            try {
+                Fen.load(chessMatch, fen);
+                search.clear();
+                int move = search.search(chessMatch, depth, nodes, 0);
+                long millis = (System.nanoTime() - start) / 1_000_000;
+
+                int score = search.getScore();
+                if (move != Move.NONE)
+                    Move.append(row, move, chessMatch.getRows());
+                row.append(',');
+
+                if (Math.abs(score) >= Search.MATE - MoveOrderer.MAX_PLY) {
+                    int plies = Search.MATE - Math.abs(score);
+                    row.append(',').append((score > 0) ? (plies + 1) / 2 : -(plies / 2));
+                } else
+                    row.append(score).append(',');
+
+                row.append(',').append(search.getDepth())
+                        .append(',').append(search.getNodes())
+                        .append(',').append(millis)
+                        .append(',');
+            } catch (ChessException e) {
+                row.append(",,,,,,").append(e.getMessage().replace(',', ';'));
+            }
+
+            return row.toString();
+        }
+    }
+}
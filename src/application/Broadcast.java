@@ -0,0 +1,82 @@
+package application;
+
+import chess.ChessMatch;
+import chess.Fen;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+// the spectators of one hosted game: every event is encoded once into a read-only buffer that the
+// queues of all spectators share, and a spectator whose queue is full drops it and is sent the
+// current position instead, encoded at most once per move however many spectators fall behind
+class Broadcast {
+
+    static final int QUEUE_LIMIT = 256;
+
+    private final int id;
+    private final Set<Session> spectators = new LinkedHashSet<>();
+    private ChessMatch chessMatch;
+    private ByteBuffer snapshot;
+
+    Broadcast(int id, ChessMatch chessMatch) {
+        this.id = id;
+        this.chessMatch = chessMatch;
+    }
+
+    void moved(CharSequence move) {
+
+        this.snapshot = null;
+        this.publish(encode("game " + id + " move " + (chessMatch.getTurn() - 1) + " " + move + "\n"));
+    }
+
+    void reset(ChessMatch chessMatch) {
+
+        this.chessMatch = chessMatch;
+        this.snapshot = null;
+        this.publish(this.snapshot());
+    }
+
+    // the host left, the spectators are told and let go
+    void close() {
+
+        ByteBuffer over = encode("game " + id + " over\n");
+        for (Session spectator : spectators)
+            spectator.ended(over);
+        spectators.clear();
+    }
+
+    ByteBuffer snapshot() {
+
+        if (snapshot == null)
+            snapshot = encode("game " + id + " position " + Fen.toFen(chessMatch) + "\n");
+        return snapshot;
+    }
+
+    void add(Session spectator) {
+        spectators.add(spectator);
+    }
+
+    void remove(Session spectator) {
+        spectators.remove(spectator);
+    }
+
+    int getId() {
+        return id;
+    }
+
+    int spectators() {
+        return spectators.size();
+    }
+
+    private void publish(ByteBuffer event) {
+
+        for (Session spectator : spectators)
+            spectator.deliver(event);
+    }
+
+    private static ByteBuffer encode(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII)).asReadOnlyBuffer();
+    }
+}
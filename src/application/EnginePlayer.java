@@ -0,0 +1,84 @@
+package application;
+
+import chess.ChessMatch;
+import chess.Color;
+import chess.Move;
+import chess.engine.Engine;
+
+// engine opponent for the console game, which keeps searching the position after the
+// reply it expects from the human while the human is still typing (pondering)
+public class EnginePlayer {
+
+    private final Engine engine;
+    private final Color color;
+    private final int depth;
+    private final long millis;
+    private final boolean ponder;
+
+    private int predicted = Move.NONE;
+    private long ponderStart;
+    private boolean pondering;
+    private volatile int ponderMove = Move.NONE;
+
+    public EnginePlayer(Color color, int depth, long millis, boolean ponder) {
+        this.engine = new Engine();
+        this.color = color;
+        this.depth = depth;
+        this.millis = millis;
+        this.ponder = ponder;
+    }
+
+    // best move for the current position, taken from the ponder search when the human played the predicted move
+    public int think(ChessMatch chessMatch) {
+
+        if (pondering) {
+
+            pondering = false;
+            long remaining = (millis > 0) ? millis - (System.currentTimeMillis() - ponderStart) : Long.MAX_VALUE;
+            engine.waitForSearch(remaining);
+            if (ponderMove != Move.NONE && chessMatch.isPossibleMove(ponderMove))
+                return ponderMove;
+        }
+
+        return engine.search(chessMatch, depth, 0, millis, null);
+    }
+
+    // starts searching the position after the expected reply, on a copy of the match
+    public void startPondering(ChessMatch chessMatch) {
+
+        this.cancel();
+
+        int[] pv = engine.getMainSearch().getPrincipalVariation();
+        if (!ponder || chessMatch.getCheckMate() || pv.length < 2)
+            return;
+
+        ChessMatch copy = new ChessMatch(chessMatch);
+        if (!copy.isPossibleMove(pv[1]) || !copy.makeMove(pv[1]))
+            return;
+
+        predicted = pv[1];
+        ponderMove = Move.NONE;
+        ponderStart = System.currentTimeMillis();
+        pondering = true;
+        engine.start(copy, depth, 0, 0, null, move -> ponderMove = move);
+    }
+
+    // keeps the ponder search if the human played the predicted move, otherwise throws it away
+    public void opponentMoved(int move) {
+
+        if (pondering && move != predicted)
+            this.cancel();
+    }
+
+    public void cancel() {
+
+        pondering = false;
+        predicted = Move.NONE;
+        engine.stop();
+        engine.waitForSearch();
+    }
+
+    public Color getColor() {
+        return color;
+    }
+}
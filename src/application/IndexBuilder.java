@@ -0,0 +1,362 @@
+package application;
+
+import chess.ChessMatch;
+import chess.Fen;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+// builds a PositionIndex from an archive with one game per line, "<game id> <moves from the start position>"
+// such as "17 e2e4 e7e5 g1f3": the pool threads replay games into their own buffers, every full buffer
+// is sorted and written as a run, and the runs are memory-mapped and merged, FAN_IN at a time, into the index
+class IndexBuilder {
+
+    private static final int FAN_IN = 64;
+    private static final int MAX_PLY = 0xFFFF;
+
+    private final Path directory;
+    private final int runRecords;
+    private final AtomicInteger runNumber = new AtomicInteger();
+    private final ConcurrentLinkedQueue<Path> runs = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Worker> workers = new ConcurrentLinkedQueue<>();
+    private final AtomicLong positions = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    IndexBuilder(Path directory, int runMegabytes) {
+        this.directory = directory;
+        this.runRecords = runMegabytes * (1024 * 1024 / PositionIndex.RECORD);
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        int runMegabytes = 64;
+
+        for (int i = 3; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--threads":
+                    threads = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--run-mb":
+                    runMegabytes = Math.max(1, Math.min(1024, Integer.parseInt(args[i + 1])));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        Path index = Paths.get(args[2]);
+        Path directory = Files.createTempDirectory(index.toAbsolutePath().getParent(), "runs");
+        IndexBuilder builder = new IndexBuilder(directory, runMegabytes);
+
+        long start = System.nanoTime();
+        long games;
+        try {
+            games = builder.replay(Paths.get(args[1]), threads);
+        } catch (IOException e) {
+            builder.discard();
+            throw e;
+        }
+        builder.merge(index);
+        Files.delete(directory);
+
+        double seconds = Math.max(1e-9, (System.nanoTime() - start) / 1e9);
+        System.err.printf("%d games, %d positions, %d games rejected, %.1f s%n",
+                games, builder.positions.get(), builder.rejected.get(), seconds);
+    }
+
+    long replay(Path archive, int threads) throws IOException, InterruptedException {
+
+        ThreadLocal<Worker> local = ThreadLocal.withInitial(() -> {
+            Worker worker = new Worker();
+            workers.add(worker);
+            return worker;
+        });
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        Semaphore inFlight = new Semaphore(threads * 64);
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        long games = 0;
+
+        try (BufferedReader in = Files.newBufferedReader(archive)) {
+
+            String line;
+            while ((line = in.readLine()) != null && failure.get() == null) {
+
+                String game = line.trim();
+                if (game.isEmpty() || game.startsWith("#"))
+                    continue;
+
+                games++;
+                inFlight.acquire();
+                pool.execute(() -> {
+                    try {
+                        local.get().index(game);
+                    } catch (IOException | RuntimeException e) {
+                        // the first failure stops the replay; a run may be missing, so the index must not be merged
+                        if (failure.compareAndSet(null, e))
+                            System.err.println("Game " + game.split(" ", 2)[0] + " failed: " + e);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        } finally {
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+
+        if (failure.get() != null)
+            throw new IOException("Replay of " + archive + " failed", failure.get());
+
+        // the pool has terminated, so the partly filled buffers can be written from here
+        for (Worker worker : workers)
+            worker.flush();
+
+        return games;
+    }
+
+    // removes the run directory left by a failed replay, including a run that was only partly written
+    void discard() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator)
+                Files.deleteIfExists(file);
+        }
+        Files.deleteIfExists(directory);
+    }
+
+    void merge(Path index) throws IOException {
+
+        List<Path> pending = new ArrayList<>(runs);
+        if (pending.isEmpty()) {
+            Files.write(index, new byte[0]);
+            return;
+        }
+
+        while (pending.size() > 1) {
+
+            List<Path> merged = new ArrayList<>();
+            for (int i = 0; i < pending.size(); i += FAN_IN) {
+                List<Path> group = pending.subList(i, Math.min(pending.size(), i + FAN_IN));
+                Path run = this.nextRun();
+                mergeRuns(group, run);
+                for (Path p : group)
+                    Files.delete(p);
+                merged.add(run);
+            }
+            pending = merged;
+        }
+
+        Files.move(pending.get(0), index, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private Path nextRun() {
+        return directory.resolve("run-" + runNumber.getAndIncrement());
+    }
+
+    private static void mergeRuns(List<Path> group, Path target) throws IOException {
+
+        PriorityQueue<Cursor> queue = new PriorityQueue<>();
+        List<FileChannel> channels = new ArrayList<>();
+
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+
+            for (Path run : group) {
+                FileChannel channel = FileChannel.open(run, StandardOpenOption.READ);
+                channels.add(channel);
+                Cursor cursor = new Cursor(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+                if (cursor.advance())
+                    queue.add(cursor);
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+            while (!queue.isEmpty()) {
+
+                Cursor cursor = queue.poll();
+                if (!buffer.hasRemaining())
+                    write(out, buffer);
+                buffer.putLong(cursor.key).putLong(cursor.value);
+
+                if (cursor.advance())
+                    queue.add(cursor);
+            }
+            write(out, buffer);
+        } finally {
+            for (FileChannel channel : channels)
+                channel.close();
+        }
+    }
+
+    private static void write(FileChannel out, ByteBuffer buffer) throws IOException {
+
+        buffer.flip();
+        while (buffer.hasRemaining())
+            out.write(buffer);
+        buffer.clear();
+    }
+
+    // sorts the records by key, then value, keeping the two arrays in step
+    static void sort(long[] keys, long[] values, int from, int to) {
+
+        while (to - from > 16) {
+
+            int middle = (from + to) >>> 1;
+            long pivotKey = keys[middle];
+            long pivotValue = values[middle];
+
+            int i = from;
+            int j = to - 1;
+            while (i <= j) {
+                while (compare(keys[i], values[i], pivotKey, pivotValue) < 0)
+                    i++;
+                while (compare(keys[j], values[j], pivotKey, pivotValue) > 0)
+                    j--;
+                if (i <= j)
+                    swap(keys, values, i++, j--);
+            }
+
+            // recurse into the smaller half so the stack stays logarithmic
+            if (j + 1 - from < to - i) {
+                sort(keys, values, from, j + 1);
+                from = i;
+            } else {
+                sort(keys, values, i, to);
+                to = j + 1;
+            }
+        }
+
+        for (int i = from + 1; i < to; i++)
+            for (int j = i; j > from && compare(keys[j - 1], values[j - 1], keys[j], values[j]) > 0; j--)
+                swap(keys, values, j, j - 1);
+    }
+
+    private static int compare(long key, long value, long otherKey, long otherValue) {
+        return (key != otherKey) ? Long.compare(key, otherKey) : Long.compare(value, otherValue);
+    }
+
+    private static void swap(long[] keys, long[] values, int i, int j) {
+
+        long key = keys[i];
+        keys[i] = keys[j];
+        keys[j] = key;
+
+        long value = values[i];
+        values[i] = values[j];
+        values[j] = value;
+    }
+
+    private static final class Cursor implements Comparable<Cursor> {
+
+        private final MappedByteBuffer run;
+        private long key;
+        private long value;
+
+        Cursor(MappedByteBuffer run) {
+            this.run = run;
+        }
+
+        boolean advance() {
+
+            if (run.remaining() < PositionIndex.RECORD)
+                return false;
+            key = run.getLong();
+            value = run.getLong();
+            return true;
+        }
+
+        @Override
+        public int compareTo(Cursor other) {
+            return compare(key, value, other.key, other.value);
+        }
+    }
+
+    // one per pool thread: a reusable match and the run being filled
+    private final class Worker {
+
+        private final ChessMatch chessMatch = new ChessMatch();
+        private final long[] keys = new long[runRecords];
+        private final long[] values = new long[runRecords];
+        private int count;
+
+        void index(String game) throws IOException {
+
+            String[] tokens = game.split("\\s+");
+            long gameId;
+            try {
+                gameId = Long.parseLong(tokens[0]);
+            } catch (NumberFormatException e) {
+                gameId = -1;
+            }
+            if (gameId < 0 || gameId >= 1L << 47) {
+                System.err.println("Skipping game with a bad id: " + tokens[0]);
+                rejected.incrementAndGet();
+                return;
+            }
+
+            Fen.load(chessMatch, Fen.START_POSITION);
+            this.add(PositionIndex.key(chessMatch), PositionIndex.value(gameId, 0));
+
+            int ply = 1;
+            for (; ply < tokens.length && ply <= MAX_PLY; ply++) {
+
+                // the positions up to an illegal move stay indexed
+                if (!Uci.playMove(chessMatch, tokens[ply])) {
+                    System.err.println("Game " + gameId + ": illegal move " + tokens[ply] + " at ply " + ply);
+                    rejected.incrementAndGet();
+                    break;
+                }
+                this.add(PositionIndex.key(chessMatch), PositionIndex.value(gameId, ply));
+            }
+            positions.addAndGet(ply);
+        }
+
+        private void add(long key, long value) throws IOException {
+
+            keys[count] = key;
+            values[count] = value;
+            if (++count == runRecords)
+                this.flush();
+        }
+
+        void flush() throws IOException {
+
+            if (count == 0)
+                return;
+
+            sort(keys, values, 0, count);
+            Path run = nextRun();
+            try (FileChannel out = FileChannel.open(run, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+
+                ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+                for (int i = 0; i < count; i++) {
+                    if (!buffer.hasRemaining())
+                        write(out, buffer);
+                    buffer.putLong(keys[i]).putLong(values[i]);
+                }
+                write(out, buffer);
+            }
+
+            runs.add(run);
+            count = 0;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package application;
+
+import boardgame.Piece;
+import chess.ChessMatch;
+import chess.ChessPiece;
+import chess.Color;
+import chess.Fen;
+import chess.PieceType;
+import chess.engine.Zobrist;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+// which games of an archive reach a position: the index is one file of 16 byte records (position key,
+// game id << 16 | ply) sorted by key, memory-mapped and binary searched, see IndexBuilder
+// java application.PositionIndex build <archive> <index> [--threads N] [--run-mb M]
+// java application.PositionIndex query <index> <fen>
+public class PositionIndex implements AutoCloseable {
+
+    static final int RECORD = 16;
+
+    // records per mapped segment, segments stay below the 2 GB a single mapping can hold
+    private static final long SEGMENT_RECORDS = 1L << 26;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] segments;
+    private final long size;
+
+    public PositionIndex(Path file) throws IOException {
+
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.size = channel.size() / RECORD;
+        this.segments = new MappedByteBuffer[(int) ((size + SEGMENT_RECORDS - 1) / SEGMENT_RECORDS)];
+        for (int i = 0; i < segments.length; i++) {
+            long first = i * SEGMENT_RECORDS;
+            long records = Math.min(SEGMENT_RECORDS, size - first);
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, first * RECORD, records * RECORD);
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+
+        if (args.length >= 3 && args[0].equals("build")) {
+            IndexBuilder.main(args);
+            return;
+        }
+
+        if (args.length < 3 || !args[0].equals("query")) {
+            System.err.println("Usage: PositionIndex build <archive> <index> [--threads N] [--run-mb M]");
+            System.err.println("       PositionIndex query <index> <fen>");
+            System.exit(2);
+        }
+
+        StringBuilder fen = new StringBuilder();
+        for (int i = 2; i < args.length; i++)
+            fen.append(args[i]).append(' ');
+
+        try (PositionIndex index = new PositionIndex(Paths.get(args[1]))) {
+
+            long start = System.nanoTime();
+            List<Long> games = index.find(key(Fen.parse(fen.toString())));
+            long micros = (System.nanoTime() - start) / 1000;
+
+            for (long value : games)
+                System.out.println("game " + gameId(value) + " ply " + ply(value));
+            System.err.println(games.size() + " occurrences in " + micros + " us");
+        }
+    }
+
+    // every record with the key, as game id << 16 | ply in game order
+    public List<Long> find(long key) {
+
+        long low = 0;
+        long high = size;
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            if (this.key(middle) < key)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+
+        List<Long> found = new ArrayList<>();
+        for (long i = low; i < size && this.key(i) == key; i++)
+            found.add(this.value(i));
+        return found;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    private long key(long record) {
+        return segments[(int) (record / SEGMENT_RECORDS)].getLong((int) (record % SEGMENT_RECORDS) * RECORD);
+    }
+
+    private long value(long record) {
+        return segments[(int) (record / SEGMENT_RECORDS)].getLong((int) (record % SEGMENT_RECORDS) * RECORD + 8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    static long value(long gameId, int ply) {
+        return gameId << 16 | ply;
+    }
+
+    static long gameId(long value) {
+        return value >>> 16;
+    }
+
+    static int ply(long value) {
+        return (int) (value & 0xFFFF);
+    }
+
+    // the match hash tells an unmoved king or rook apart even once castling is no longer possible, and
+    // marks every double step for en passant; the index key follows the FEN rules instead, so a position
+    // reached in a game and the same position read from a FEN get the same key
+    static long key(ChessMatch chessMatch) {
+
+        long key = Zobrist.side(chessMatch.getCurrentPlayer());
+        List<Piece> pieces = chessMatch.getPiecesOnTheBoard();
+        for (int i = 0; i < pieces.size(); i++) {
+
+            ChessPiece p = (ChessPiece) pieces.get(i);
+            int row = p.getPosition().getRow();
+            int column = p.getPosition().getColumn();
+            boolean castling = (p.getType() == PieceType.KING) ? hasUnmoved(chessMatch, PieceType.ROOK, p.getColor())
+                    : p.getType() == PieceType.ROOK && hasUnmoved(chessMatch, PieceType.KING, p.getColor());
+
+            key ^= (castling && p.getMoveCount() == 0) ? Zobrist.piece(p, row, column)
+                    : Zobrist.piece(p.getType(), p.getColor(), row, column);
+        }
+
+        ChessPiece ep = chessMatch.getEnPassantVulnerable();
+        if (ep != null && ep.getPosition() != null && ep.getColor() != chessMatch.getCurrentPlayer()
+                && (isPawn(chessMatch, ep, -1) || isPawn(chessMatch, ep, 1)))
+            key ^= Zobrist.enPassant(ep.getPosition().getColumn());
+
+        return key;
+    }
+
+    private static boolean hasUnmoved(ChessMatch chessMatch, PieceType type, Color color) {
+
+        List<Piece> pieces = chessMatch.getPiecesOnTheBoard();
+        for (int i = 0; i < pieces.size(); i++) {
+            ChessPiece p = (ChessPiece) pieces.get(i);
+            if (p.getType() == type && p.getColor() == color && p.getMoveCount() == 0)
+                return true;
+        }
+        return false;
+    }
+
+    // an opponent pawn beside the vulnerable one, only then is en passant part of the position
+    private static boolean isPawn(ChessMatch chessMatch, ChessPiece ep, int side) {
+
+        int column = ep.getPosition().getColumn() + side;
+        if (column < 0 || column >= chessMatch.getColumns())
+            return false;
+
+        ChessPiece p = chessMatch.piece(ep.getPosition().getRow(), column);
+        return p != null && p.getType() == PieceType.PAWN && p.getColor() != ep.getColor();
+    }
+}
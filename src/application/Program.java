@@ -1,6 +1,8 @@
 package application;
 
 import chess.*;
+import chess.engine.MoveOrderer;
+import chess.metrics.MetricsReporter;
 
 import java.util.ArrayList;
 import java.util.InputMismatchException;
@@ -9,51 +11,124 @@ import java.util.Scanner;
 
 public class Program {
 
+    // java application.Program [--variant standard|capablanca|capablanca_10x10]
+    //     [--engine red|blue] [--depth D] [--movetime ms] [--ponder true|false]
     public static void main(String[] args) {
 
+        MetricsReporter.start();
         Scanner scanner = new Scanner(System.in);
-        ChessMatch chessMatch = new ChessMatch();
+        ChessMatch chessMatch = new ChessMatch(variant(args));
         List<ChessPiece> captured = new ArrayList<>();
+        EnginePlayer engine = enginePlayer(args);
 
-        while (!chessMatch.getCheckMate()) {
+        try {
+            while (!chessMatch.getCheckMate()) {
 
-            try {
-                UI.clearScreen();
-                UI.printMatch(chessMatch, captured);
-                System.out.println();
+                try {
+                    UI.clearScreen();
+                    UI.printMatch(chessMatch, captured);
+                    System.out.println();
 
-                System.out.print("Source: ");
-                ChessPosition source = UI.readChessPosition(scanner);
+                    if (engine != null && chessMatch.getCurrentPlayer() == engine.getColor()) {
 
-                boolean[][] possibleMoves = chessMatch.possibleMoves(source);
-                UI.clearScreen();
-                UI.printBoard(chessMatch.getPieces(), possibleMoves);
+                        int move = engine.think(chessMatch);
+                        if (move == Move.NONE) {
+                            System.out.println("The engine has no legal move");
+                            break;
+                        }
 
-                System.out.println();
-                System.out.print("Target: ");
-                ChessPosition target = UI.readChessPosition(scanner);
+                        ChessPiece capturedPiece = chessMatch.performChessMove(move);
+                        if (capturedPiece != null)
+                            captured.add(capturedPiece);
 
-                ChessPiece capturedPiece = chessMatch.performChessMove(source, target);
-                if (capturedPiece != null)
-                    captured.add(capturedPiece);
+                        engine.startPondering(chessMatch);
+                        continue;
+                    }
 
-                if (chessMatch.getPromoted() != null) {
+                    System.out.print("Source: ");
+                    ChessPosition source = UI.readChessPosition(scanner);
 
-                    System.out.print("Enter piece for promotion (B/N/R/Q): ");
-                    String type = scanner.nextLine();
-                    chessMatch.replacePromotedPiece(type);
-                }
+                    boolean[][] possibleMoves = chessMatch.possibleMoves(source);
+                    UI.clearScreen();
+                    UI.printBoard(chessMatch.getPieces(), possibleMoves);
+
+                    System.out.println();
+                    System.out.print("Target: ");
+                    ChessPosition target = UI.readChessPosition(scanner);
+
+                    // the promotion type is asked first, so the move is played in one step
+                    int move = Move.of(source, target, chessMatch.getRows(), chessMatch.getColumns(), null);
+                    if (chessMatch.promotes(move)) {
+
+                        System.out.print((chessMatch.getColumns() > 8) ? "Enter piece for promotion (B/N/R/Q/A/C): " : "Enter piece for promotion (B/N/R/Q): ");
+                        String type = scanner.nextLine().trim();
+                        PieceType promotion = (type.length() == 1) ? PieceType.fromLetter(type.charAt(0)) : null;
+                        if (promotion == null)
+                            throw new ChessException("Invalid type for promotion");
+                        move = Move.of(source, target, chessMatch.getRows(), chessMatch.getColumns(), promotion);
+                    }
+
+                    ChessPiece capturedPiece = chessMatch.performChessMove(move);
+                    if (capturedPiece != null)
+                        captured.add(capturedPiece);
 
-            } catch (ChessException e) {
-                System.out.println(e.getMessage());
-                scanner.nextLine();
-            } catch (InputMismatchException e) {
-                System.out.println(e.getMessage());
-                scanner.nextLine();
+                    if (engine != null)
+                        engine.opponentMoved(move);
+
+                } catch (ChessException e) {
+                    System.out.println(e.getMessage());
+                    scanner.nextLine();
+                } catch (InputMismatchException e) {
+                    System.out.println(e.getMessage());
+                    scanner.nextLine();
+                }
             }
+        } finally {
+            if (engine != null)
+                engine.cancel();
         }
 
         UI.clearScreen();
         UI.printMatch(chessMatch, captured);
     }
+
+    private static Variant variant(String[] args) {
+
+        for (int i = 0; i + 1 < args.length; i += 2)
+            if (args[i].equals("--variant"))
+                return Variant.valueOf(args[i + 1].toUpperCase());
+
+        return Variant.STANDARD;
+    }
+
+    private static EnginePlayer enginePlayer(String[] args) {
+
+        Color color = null;
+        int depth = MoveOrderer.MAX_PLY - 1;
+        long millis = 2000;
+        boolean ponder = true;
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--variant":
+                    break;
+                case "--engine":
+                    color = Color.valueOf(args[i + 1].toUpperCase());
+                    break;
+                case "--depth":
+                    depth = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--movetime":
+                    millis = Long.parseLong(args[i + 1]);
+                    break;
+                case "--ponder":
+                    ponder = Boolean.parseBoolean(args[i + 1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        return (color == null) ? null : new EnginePlayer(color, depth, millis, ponder);
+    }
 }
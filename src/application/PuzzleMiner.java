@@ -0,0 +1,248 @@
+package application;
+
+import chess.ChessMatch;
+import chess.Fen;
+import chess.Move;
+import chess.engine.MateSolver;
+import chess.engine.MoveOrderer;
+import chess.metrics.MetricsReporter;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// mines mate puzzles from an archive in the IndexBuilder format, one game per line: every position
+// of every game is given to a MateSolver, and a forced mate becomes a puzzle when no other first
+// move, nor any other attacking move along the line before the mating one, mates as fast;
+// puzzles are written as CSV in archive order, and <output>.checkpoint records how many games and
+// bytes of output are complete, so running the same command again resumes from there
+// java application.PuzzleMiner <archive> <output.csv> [--threads N] [--mate M] [--nodes N] [--hash MB]
+public class PuzzleMiner {
+
+    private static final String HEADER = "game,ply,fen,moves,mate_in";
+    private static final long CHECKPOINT_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private final AtomicLong positions = new AtomicLong();
+    private final AtomicLong puzzles = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+
+        if (args.length < 2) {
+            System.err.println("Usage: PuzzleMiner <archive> <output.csv> [--threads N] [--mate M] [--nodes N] [--hash MB]");
+            System.exit(2);
+        }
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        int mate = 3;
+        long nodes = 200_000;
+        int hash = 4;
+
+        for (int i = 2; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--threads":
+                    threads = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--mate":
+                    mate = Math.max(1, Math.min((MoveOrderer.MAX_PLY - 1) / 2, Integer.parseInt(args[i + 1])));
+                    break;
+                case "--nodes":
+                    nodes = Long.parseLong(args[i + 1]);
+                    break;
+                case "--hash":
+                    hash = Integer.parseInt(args[i + 1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        MetricsReporter.start();
+        new PuzzleMiner().mine(Paths.get(args[0]), Paths.get(args[1]), threads, mate, nodes, hash);
+    }
+
+    void mine(Path archive, Path output, int threads, int mate, long nodes, int hash) throws IOException, InterruptedException {
+
+        Path checkpoint = Paths.get(output + ".checkpoint");
+        long skip = 0;
+
+        if (Files.exists(checkpoint)) {
+            String[] saved = new String(Files.readAllBytes(checkpoint), StandardCharsets.US_ASCII).trim().split("\\s+");
+            skip = Long.parseLong(saved[0]);
+            long bytes = Long.parseLong(saved[1]);
+            // whatever was written after the checkpoint is written again
+            try (FileChannel channel = FileChannel.open(output, StandardOpenOption.WRITE)) {
+                channel.truncate(bytes);
+            }
+            System.err.println("Resuming after game " + skip);
+        } else
+            Files.write(output, (HEADER + "\n").getBytes(StandardCharsets.US_ASCII));
+
+        ThreadLocal<Worker> workers = ThreadLocal.withInitial(() -> new Worker(hash, nodes, mate));
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+
+        long start = System.nanoTime();
+        long nextCheckpoint = start + CHECKPOINT_NANOS;
+        long count = 0;
+
+        try (BufferedReader in = Files.newBufferedReader(archive);
+             BufferedWriter out = Files.newBufferedWriter(output, StandardOpenOption.APPEND)) {
+
+            ReorderBuffer buffer = new ReorderBuffer(out, threads * 64);
+
+            String line;
+            while ((line = in.readLine()) != null) {
+
+                String game = line.trim();
+                if (game.isEmpty() || game.startsWith("#"))
+                    continue;
+                if (count++ < skip)
+                    continue;
+
+                long index = count - 1 - skip;
+                buffer.reserve();
+                pool.execute(() -> this.mine(workers, buffer, index, game));
+
+                if (System.nanoTime() > nextCheckpoint) {
+                    this.checkpoint(buffer, out, output, checkpoint, skip);
+                    nextCheckpoint = System.nanoTime() + CHECKPOINT_NANOS;
+                }
+            }
+
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            this.checkpoint(buffer, out, output, checkpoint, skip);
+        }
+
+        double seconds = Math.max(1e-9, (System.nanoTime() - start) / 1e9);
+        System.err.printf("%d games, %d positions, %d puzzles, %d rejected as not unique, %.1f s%n",
+                count - skip, positions.get(), puzzles.get(), rejected.get(), seconds);
+    }
+
+    // every reserved index is completed, with no rows when the game failed, or the buffer would hold
+    // back all the later games and reserve would block once its permits are gone
+    private void mine(ThreadLocal<Worker> workers, ReorderBuffer buffer, long index, String game) {
+
+        String rows = "";
+        try {
+            rows = workers.get().mine(game);
+        } catch (RuntimeException e) {
+            System.err.println("Game " + game.split("\\s+", 2)[0] + " skipped: " + e);
+            // the worker may be left in the middle of a line, the next game gets a fresh one
+            workers.remove();
+        } finally {
+            buffer.complete(index, rows);
+        }
+    }
+
+    // the rows written so far and the output length are saved together, while the buffer is held
+    private void checkpoint(ReorderBuffer buffer, BufferedWriter out, Path output, Path checkpoint, long skip) throws IOException {
+
+        String state;
+        synchronized (buffer) {
+            out.flush();
+            state = (skip + buffer.getWritten()) + " " + Files.size(output) + "\n";
+        }
+
+        Path temporary = Paths.get(checkpoint + ".tmp");
+        Files.write(temporary, state.getBytes(StandardCharsets.US_ASCII));
+        Files.move(temporary, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // each pool thread owns one match and one solver, nothing is shared between them
+    private final class Worker {
+
+        private final ChessMatch chessMatch = new ChessMatch();
+        private final MateSolver solver;
+        private final int mate;
+        private final int[] moves = new int[MoveOrderer.MAX_MOVES];
+
+        Worker(int hash, long nodes, int mate) {
+            this.solver = new MateSolver(hash);
+            this.solver.setNodeLimit(nodes);
+            this.mate = mate;
+        }
+
+        // the CSV rows of the game's puzzles, empty when there are none
+        String mine(String game) {
+
+            String[] tokens = game.split("\\s+");
+            StringBuilder rows = new StringBuilder();
+            Fen.load(chessMatch, Fen.START_POSITION);
+
+            // positions further along a puzzle the game went on to play are not puzzles of their own
+            int[] line = new int[0];
+            int followed = 0;
+
+            for (int ply = 1; ply < tokens.length; ply++) {
+
+                int move = Move.parse(tokens[ply], chessMatch.getRows());
+                followed = (followed < line.length && move == line[followed]) ? followed + 1 : line.length;
+
+                if (!Uci.playMove(chessMatch, tokens[ply])) {
+                    System.err.println("Game " + tokens[0] + ": illegal move " + tokens[ply] + " at ply " + ply);
+                    break;
+                }
+                if (followed < line.length)
+                    continue;
+
+                positions.incrementAndGet();
+                int[] solution = solver.solve(chessMatch, mate);
+                if (solution.length == 0)
+                    continue;
+
+                if (!this.isUnique(solution)) {
+                    rejected.incrementAndGet();
+                    continue;
+                }
+
+                line = solution;
+                followed = 0;
+                puzzles.incrementAndGet();
+                rows.append((rows.length() > 0) ? "\n" : "").append(tokens[0]).append(',').append(ply).append(',')
+                        .append(Fen.toFen(chessMatch)).append(',');
+                for (int i = 0; i < solution.length; i++)
+                    Move.append(rows.append((i > 0) ? " " : ""), solution[i], chessMatch.getRows());
+                rows.append(',').append((solution.length + 1) / 2);
+            }
+
+            return rows.toString();
+        }
+
+        // no other check mates as fast at any attacking move but the last, where every mate is accepted;
+        // an alternative the solver ran out of nodes on counts against the puzzle
+        private boolean isUnique(int[] solution) {
+
+            int played = 0;
+            boolean unique = true;
+
+            for (int i = 0; i + 1 < solution.length && unique; i += 2) {
+
+                int remaining = (solution.length - i + 1) / 2;
+                int count = chessMatch.generateMoves(moves);
+                for (int j = 0; j < count && unique; j++)
+                    if (moves[j] != solution[i] && (solver.mates(chessMatch, moves[j], remaining) || solver.isStopped()))
+                        unique = false;
+
+                chessMatch.makeMove(solution[i]);
+                chessMatch.makeMove(solution[i + 1]);
+                played += 2;
+            }
+
+            for (int i = 0; i < played; i++)
+                chessMatch.unmakeMove();
+            return unique;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package application;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+
+// lets workers finish in any order while rows reach the writer in input order;
+// the semaphore bounds how many rows can be in flight or waiting, and an empty row
+// completes its index without writing anything
+public class ReorderBuffer {
+
+    private final Writer out;
+    private final Semaphore window;
+    private final Map<Long, String> pending = new HashMap<>();
+    private long next;
+
+    public ReorderBuffer(Writer out, int capacity) {
+        this.out = out;
+        this.window = new Semaphore(capacity);
+    }
+
+    // called by the producer before handing out row number index
+    public void reserve() throws InterruptedException {
+        window.acquire();
+    }
+
+    public synchronized void complete(long index, String row) {
+
+        pending.put(index, row);
+
+        try {
+            for (String r = pending.remove(next); r != null; r = pending.remove(next)) {
+                if (!r.isEmpty()) {
+                    out.write(r);
+                    out.write('\n');
+                }
+                next++;
+                window.release();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public synchronized long getWritten() {
+        return next;
+    }
+}
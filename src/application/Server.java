@@ -0,0 +1,198 @@
+package application;
+
+import chess.ChessMatch;
+import chess.metrics.MetricsReporter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.Pipe;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// serves any number of games from a single thread: every TCP connection gets its own session and
+// match, and the console is one more session whose input is pumped into a selectable pipe; any
+// session can also watch the game of another, see Broadcast
+// java application.Server [--port N] [--console true|false]
+public class Server {
+
+    private final Selector selector;
+    private final ByteBuffer input = ByteBuffer.allocateDirect(8192);
+    private final Map<Integer, Broadcast> games = new LinkedHashMap<>();
+    private int nextGame = 1;
+
+    public Server() throws IOException {
+        this.selector = Selector.open();
+    }
+
+    public static void main(String[] args) throws IOException {
+
+        int port = 7777;
+        boolean console = true;
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--port":
+                    port = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--console":
+                    console = Boolean.parseBoolean(args[i + 1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        MetricsReporter.start();
+        Server server = new Server();
+        server.listen(port);
+        if (console)
+            server.attachConsole(System.in);
+        server.run();
+    }
+
+    public void listen(int port) throws IOException {
+
+        ServerSocketChannel channel = ServerSocketChannel.open();
+        channel.bind(new InetSocketAddress(port));
+        channel.configureBlocking(false);
+        channel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    // System.in is not selectable, so a daemon thread copies it into a pipe the selector can watch
+    public void attachConsole(InputStream in) throws IOException {
+
+        Pipe pipe = Pipe.open();
+        pipe.source().configureBlocking(false);
+        SelectionKey key = pipe.source().register(selector, SelectionKey.OP_READ);
+        key.attach(new Session(Channels.newChannel(System.out), null, this));
+
+        Thread pump = new Thread(() -> {
+            byte[] buffer = new byte[1024];
+            ByteBuffer wrapped = ByteBuffer.wrap(buffer);
+            try {
+                int n;
+                while ((n = in.read(buffer)) >= 0) {
+                    wrapped.clear().limit(n);
+                    while (wrapped.hasRemaining())
+                        pipe.sink().write(wrapped);
+                }
+            } catch (IOException e) {
+                // the selector side was closed
+            } finally {
+                try {
+                    pipe.sink().close();
+                } catch (IOException e) {
+                    // nothing left to release
+                }
+            }
+        }, "console-input");
+        pump.setDaemon(true);
+        pump.start();
+    }
+
+    public void run() throws IOException {
+
+        while (!selector.keys().isEmpty()) {
+
+            selector.select();
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+
+                SelectionKey key = keys.next();
+                keys.remove();
+
+                try {
+                    if (key.isAcceptable())
+                        this.accept(key);
+                    else {
+                        if (key.isReadable())
+                            this.read(key);
+                        if (key.isValid() && key.isWritable())
+                            ((Session) key.attachment()).flush();
+                    }
+                } catch (IOException e) {
+                    close(key);
+                }
+            }
+        }
+    }
+
+    private void accept(SelectionKey key) throws IOException {
+
+        SocketChannel channel = ((ServerSocketChannel) key.channel()).accept();
+        if (channel == null)
+            return;
+
+        // a connection that fails while its session is set up is dropped alone, the selector thread
+        // goes on serving the others
+        try {
+            channel.configureBlocking(false);
+            SelectionKey sessionKey = channel.register(selector, SelectionKey.OP_READ);
+            sessionKey.attach(new Session(channel, sessionKey, this));
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Connection dropped during setup: " + e);
+            try {
+                channel.close();
+            } catch (IOException closing) {
+                // already gone
+            }
+        }
+    }
+
+    private void read(SelectionKey key) throws IOException {
+
+        Session session = (Session) key.attachment();
+        input.clear();
+        int n = ((ReadableByteChannel) key.channel()).read(input);
+        if (n < 0) {
+            close(key);
+            return;
+        }
+
+        input.flip();
+        if (!session.received(input))
+            close(key);
+    }
+
+    Broadcast host(ChessMatch chessMatch) {
+
+        Broadcast broadcast = new Broadcast(nextGame++, chessMatch);
+        games.put(broadcast.getId(), broadcast);
+        return broadcast;
+    }
+
+    Broadcast game(int id) {
+        return games.get(id);
+    }
+
+    Collection<Broadcast> games() {
+        return games.values();
+    }
+
+    void release(Broadcast broadcast) {
+        games.remove(broadcast.getId());
+    }
+
+    private void close(SelectionKey key) {
+
+        if (key.attachment() instanceof Session)
+            ((Session) key.attachment()).close();
+
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            // already gone
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package application;
+
+import chess.ChessMatch;
+import chess.ChessPiece;
+import chess.Color;
+import chess.Fen;
+import chess.Move;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+
+// one game driven by text lines, fed with whatever bytes its input channel delivered;
+// the line and output buffers are reused so a move costs no parsing allocations
+class Session {
+
+    private static final int MAX_LINE = 256;
+    private static final int MAX_PENDING = 64 * 1024;
+
+    private final WritableByteChannel out;
+    private final SelectionKey key;
+    private final Server server;
+
+    private ChessMatch chessMatch = new ChessMatch();
+    private final Broadcast broadcast;
+    private final StringBuilder line = new StringBuilder(MAX_LINE);
+    private final StringBuilder reply = new StringBuilder(512);
+    private ByteBuffer pending = ByteBuffer.allocate(1024);
+    private boolean overflow;
+    private boolean closed;
+
+    // events of the game being watched, shared with the other spectators and never copied
+    private final ArrayDeque<ByteBuffer> feed = new ArrayDeque<>();
+    private Broadcast watching;
+    private boolean needsSnapshot;
+
+    // key is the selection key of a non-blocking out channel, or null when out blocks (the console)
+    Session(WritableByteChannel out, SelectionKey key, Server server) throws IOException {
+        this.out = out;
+        this.key = key;
+        this.server = server;
+        this.broadcast = server.host(chessMatch);
+        this.reply.append("Chess server, you host game ").append(broadcast.getId()).append(", type help for the commands\n");
+        this.prompt();
+
+        // the caller never gets the session to close when the greeting cannot be sent, so the
+        // hosted game is released here
+        try {
+            this.send();
+        } catch (IOException | RuntimeException e) {
+            this.close();
+            throw e;
+        }
+    }
+
+    // consumes the bytes between position and limit, returns false once the session wants to be closed
+    boolean received(ByteBuffer in) throws IOException {
+
+        while (in.hasRemaining() && !closed) {
+
+            char c = (char) (in.get() & 0xFF);
+            if (c == '\n') {
+                if (overflow)
+                    reply.append("error: line too long\n");
+                else
+                    this.command();
+                line.setLength(0);
+                overflow = false;
+                this.prompt();
+            } else if (c != '\r') {
+                if (line.length() < MAX_LINE)
+                    line.append(c);
+                else
+                    overflow = true;
+            }
+        }
+
+        this.send();
+        return !closed;
+    }
+
+    private void command() {
+
+        this.trim();
+        if (line.length() == 0)
+            return;
+
+        if ("quit".contentEquals(line)) {
+            reply.append("bye\n");
+            closed = true;
+        } else if ("help".contentEquals(line))
+            reply.append("<move> such as e2e4 or e7e8q, board, fen, new, games, watch <game>, unwatch, quit\n");
+        else if ("board".contentEquals(line))
+            this.board();
+        else if ("fen".contentEquals(line))
+            reply.append(Fen.toFen(chessMatch)).append('\n');
+        else if ("new".contentEquals(line)) {
+            chessMatch = new ChessMatch();
+            broadcast.reset(chessMatch);
+            this.board();
+        } else if ("games".contentEquals(line))
+            this.games();
+        else if (line.length() > 6 && line.indexOf("watch ") == 0)
+            this.watch();
+        else if ("unwatch".contentEquals(line)) {
+            this.unwatch();
+            reply.append("ok\n");
+        } else
+            this.move();
+    }
+
+    private void games() {
+
+        for (Broadcast game : server.games())
+            reply.append("game ").append(game.getId()).append(", ").append(game.spectators()).append(" spectators\n");
+    }
+
+    private void watch() {
+
+        Broadcast game;
+        try {
+            game = server.game(Integer.parseInt(line.substring(6).trim()));
+        } catch (NumberFormatException e) {
+            game = null;
+        }
+
+        if (game == null) {
+            reply.append("error: no such game, type games for the list\n");
+            return;
+        }
+
+        this.unwatch();
+        reply.append("watching game ").append(game.getId()).append('\n');
+        this.watching = game;
+        game.add(this);
+        this.needsSnapshot = true;
+    }
+
+    void unwatch() {
+
+        if (watching == null)
+            return;
+
+        watching.remove(this);
+        watching = null;
+        needsSnapshot = false;
+
+        // a partly written event is finished so the output stays in whole lines
+        ByteBuffer head = feed.peekFirst();
+        feed.clear();
+        if (head != null && head.position() > 0)
+            feed.add(head);
+    }
+
+    // the watched game is over, its last event is queued even behind a full feed
+    void ended(ByteBuffer event) {
+
+        watching = null;
+        needsSnapshot = false;
+        feed.addLast(event.duplicate());
+        this.requestWrite();
+    }
+
+    // the connection is gone: leave the watched game and end the hosted one
+    void close() {
+        this.unwatch();
+        server.release(broadcast);
+        broadcast.close();
+    }
+
+    // called by the watched game for every event, a spectator that has fallen QUEUE_LIMIT events
+    // behind drops them and is sent the position once it catches up
+    void deliver(ByteBuffer event) {
+
+        if (needsSnapshot)
+            return;
+
+        if (feed.size() < Broadcast.QUEUE_LIMIT)
+            feed.addLast(event.duplicate());
+        else {
+            ByteBuffer head = feed.peekFirst();
+            feed.clear();
+            if (head.position() > 0)
+                feed.add(head);
+            needsSnapshot = true;
+        }
+
+        this.requestWrite();
+    }
+
+    private void requestWrite() {
+
+        try {
+            if (key == null)
+                this.flush();
+            else if (key.isValid())
+                key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        } catch (IOException e) {
+            // the console is gone, nothing to tell it
+        }
+    }
+
+    private void move() {
+
+        if (chessMatch.getCheckMate() || !chessMatch.hasLegalMove()) {
+            reply.append("error: the game is over, type new to start again\n");
+            return;
+        }
+
+        int move = Move.parse(line, chessMatch.getRows());
+        if (move == Move.NONE) {
+            reply.append("error: expected a move such as e2e4 or a command, type help\n");
+            return;
+        }
+
+        if (!chessMatch.isPossibleMove(move) || !chessMatch.makeMove(move)) {
+            reply.append("error: illegal move ").append(line).append('\n');
+            return;
+        }
+
+        broadcast.moved(line);
+
+        reply.append("ok ").append(line).append('\n');
+        if (!chessMatch.hasLegalMove()) {
+            if (chessMatch.getCheck())
+                reply.append("checkmate, winner: ").append(opponent(chessMatch.getCurrentPlayer())).append('\n');
+            else
+                reply.append("stalemate\n");
+        } else if (chessMatch.getCheck())
+            reply.append("check\n");
+    }
+
+    private void board() {
+
+        ChessPiece[][] pieces = chessMatch.getPieces();
+        for (int i = 0; i < pieces.length; i++) {
+
+            reply.append(pieces.length - i).append(' ');
+            for (int j = 0; j < pieces[i].length; j++) {
+                ChessPiece p = pieces[i][j];
+                if (p == null)
+                    reply.append('-');
+                else {
+                    // RED in upper case and BLUE in lower case, as in FEN
+                    char c = p.toString().charAt(0);
+                    reply.append((p.getColor() == Color.RED) ? c : Character.toLowerCase(c));
+                }
+                reply.append(' ');
+            }
+            reply.append('\n');
+        }
+
+        reply.append(' ');
+        for (int j = 0; j < pieces[0].length; j++)
+            reply.append(' ').append((char) ('a' + j));
+        reply.append('\n');
+    }
+
+    private void prompt() {
+
+        if (!closed)
+            reply.append(chessMatch.getCurrentPlayer()).append("> ");
+    }
+
+    private void trim() {
+
+        int end = line.length();
+        while (end > 0 && line.charAt(end - 1) <= ' ')
+            end--;
+        line.setLength(end);
+
+        int start = 0;
+        while (start < end && line.charAt(start) <= ' ')
+            start++;
+        line.delete(0, start);
+    }
+
+    private static Color opponent(Color color) {
+        return (color == Color.RED) ? Color.BLUE : Color.RED;
+    }
+
+    // moves the reply into the pending buffer and writes as much of it as the channel takes
+    private void send() throws IOException {
+
+        if (reply.length() > 0) {
+
+            if (pending.remaining() < reply.length()) {
+                if (pending.position() + reply.length() > MAX_PENDING)
+                    throw new IOException("Client is not reading its output");
+
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + reply.length()));
+                pending.flip();
+                larger.put(pending);
+                pending = larger;
+            }
+
+            for (int i = 0; i < reply.length(); i++)
+                pending.put((byte) reply.charAt(i));
+            reply.setLength(0);
+        }
+
+        this.flush();
+    }
+
+    // called again by the selector when a non-blocking channel becomes writable; an event that was
+    // partly written goes first, then the replies, then the rest of the watched game's events
+    void flush() throws IOException {
+
+        ByteBuffer head = feed.peekFirst();
+        if (head != null && head.position() > 0 && !this.write(head))
+            return;
+
+        pending.flip();
+        while (pending.hasRemaining())
+            if (out.write(pending) == 0 && key != null)
+                break;
+        boolean drained = !pending.hasRemaining();
+        pending.compact();
+
+        if (drained) {
+            if (needsSnapshot && watching != null) {
+                feed.addFirst(watching.snapshot().duplicate());
+                needsSnapshot = false;
+            }
+            while (!feed.isEmpty() && this.write(feed.peekFirst()))
+                feed.pollFirst();
+        }
+
+        this.updateInterest();
+    }
+
+    // whether the buffer went out completely, a non-blocking channel may take only part of it
+    private boolean write(ByteBuffer buffer) throws IOException {
+
+        while (buffer.hasRemaining())
+            if (out.write(buffer) == 0 && key != null) {
+                this.updateInterest();
+                return false;
+            }
+        return true;
+    }
+
+    private void updateInterest() {
+
+        if (key != null && key.isValid())
+            key.interestOps(this.isFlushed() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+    }
+
+    boolean isFlushed() {
+        return pending.position() == 0 && feed.isEmpty() && !needsSnapshot;
+    }
+}
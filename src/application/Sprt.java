@@ -0,0 +1,115 @@
+package application;
+
+// sequential probability ratio test on game results, using the normal approximation of the
+// log-likelihood ratio between the hypotheses elo0 and elo1 (logistic Elo)
+public class Sprt {
+
+    private final double elo0;
+    private final double elo1;
+    private final double lowerBound;
+    private final double upperBound;
+
+    private long wins;
+    private long draws;
+    private long losses;
+
+    public Sprt(double elo0, double elo1, double alpha, double beta) {
+        this.elo0 = elo0;
+        this.elo1 = elo1;
+        this.lowerBound = Math.log(beta / (1 - alpha));
+        this.upperBound = Math.log((1 - beta) / alpha);
+    }
+
+    // result from the point of view of the first engine: 1, 0.5 or 0
+    public synchronized void add(double result) {
+
+        if (result > 0.75)
+            wins++;
+        else if (result < 0.25)
+            losses++;
+        else
+            draws++;
+    }
+
+    public synchronized double llr() {
+
+        if (wins + draws + losses == 0)
+            return 0;
+
+        // half a game of pseudo-count in each of the win, draw and loss buckets: without it a run of
+        // only wins (or only losses) has zero variance and the ratio is undefined; the price is a score
+        // pulled towards 0.5 by 1.5 games' weight, which makes early decisions slightly more cautious
+        // and no longer matters after a few hundred games
+        double w = wins + 0.5;
+        double d = draws + 0.5;
+        double l = losses + 0.5;
+        double n = w + d + l;
+        double s = (w + d / 2) / n;
+        double variance = (w * sq(1 - s) + d * sq(0.5 - s) + l * sq(s)) / n;
+
+        double s0 = expectedScore(elo0);
+        double s1 = expectedScore(elo1);
+        return n * (s1 - s0) * (2 * s - s0 - s1) / (2 * variance);
+    }
+
+    // -1 when H0 is accepted, 1 when H1 is accepted, 0 while undecided
+    public synchronized int decision() {
+
+        double llr = llr();
+        if (llr >= upperBound)
+            return 1;
+        if (llr <= lowerBound)
+            return -1;
+        return 0;
+    }
+
+    public synchronized double elo() {
+        return eloFromScore(score());
+    }
+
+    // half width of the 95% confidence interval
+    public synchronized double eloError() {
+
+        long n = wins + draws + losses;
+        if (n == 0)
+            return 0;
+
+        double s = score();
+        double variance = (wins * sq(1 - s) + draws * sq(0.5 - s) + losses * sq(s)) / n;
+        double margin = 1.96 * Math.sqrt(variance / n);
+        return (eloFromScore(Math.min(0.999, s + margin)) - eloFromScore(Math.max(0.001, s - margin))) / 2;
+    }
+
+    private double score() {
+
+        long n = wins + draws + losses;
+        return (n == 0) ? 0.5 : (wins + draws / 2.0) / n;
+    }
+
+    private static double expectedScore(double elo) {
+        return 1 / (1 + Math.pow(10, -elo / 400));
+    }
+
+    private static double eloFromScore(double score) {
+
+        score = Math.min(0.999, Math.max(0.001, score));
+        return -400 * Math.log10(1 / score - 1);
+    }
+
+    private static double sq(double x) {
+        return x * x;
+    }
+
+    public double getLowerBound() {
+        return lowerBound;
+    }
+
+    public double getUpperBound() {
+        return upperBound;
+    }
+
+    public synchronized String summary() {
+        return String.format("W %d D %d L %d  Elo %.1f +/- %.1f  LLR %.2f [%.2f, %.2f]",
+                wins, draws, losses, elo(), eloError(), llr(), lowerBound, upperBound);
+    }
+}
@@ -0,0 +1,336 @@
+package application;
+
+import chess.ChessException;
+import chess.ChessMatch;
+import chess.Color;
+import chess.Fen;
+import chess.Move;
+import chess.engine.MoveOrderer;
+import chess.engine.Search;
+import chess.engine.TranspositionTable;
+import chess.metrics.MetricsReporter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+// self-play between two engine configurations, with SPRT stopping:
+// java application.Tournament --openings <file> [--games N] [--threads N] [--a spec] [--b spec]
+//     [--elo0 E] [--elo1 E] [--alpha A] [--beta B] [--maxplies N] [--randomplies N]
+// an engine spec is a comma separated list such as depth=4,nodes=0,hash=4,qsearch=true and an
+// openings line is either a FEN or a list of moves from the start position ("e2e4 e7e5 g1f3")
+public class Tournament {
+
+    private static final int REPORT_EVERY = 100;
+
+    // used without --openings; the engines are deterministic, so every pair of games needs a position
+    // of its own or the SPRT trials are the same game over and over
+    private static final List<String> OPENINGS = List.of(
+            "e2e4 e7e5 g1f3 b8c6 f1b5",
+            "e2e4 e7e5 g1f3 b8c6 f1c4",
+            "e2e4 e7e5 g1f3 g8f6",
+            "e2e4 e7e5 b1c3",
+            "e2e4 e7e5 f2f4",
+            "e2e4 c7c5 g1f3 d7d6",
+            "e2e4 c7c5 g1f3 b8c6",
+            "e2e4 c7c5 g1f3 e7e6",
+            "e2e4 c7c5 b1c3",
+            "e2e4 e7e6 d2d4 d7d5",
+            "e2e4 c7c6 d2d4 d7d5",
+            "e2e4 d7d6 d2d4 g8f6",
+            "e2e4 g7g6 d2d4 f8g7",
+            "e2e4 d7d5 e4d5 d8d5",
+            "e2e4 g8f6 e4e5 f6d5",
+            "d2d4 d7d5 c2c4 e7e6",
+            "d2d4 d7d5 c2c4 c7c6",
+            "d2d4 d7d5 c2c4 d5c4",
+            "d2d4 d7d5 g1f3 g8f6",
+            "d2d4 g8f6 c2c4 e7e6",
+            "d2d4 g8f6 c2c4 g7g6",
+            "d2d4 g8f6 c2c4 c7c5",
+            "d2d4 f7f5 g2g3",
+            "d2d4 g8f6 c1g5",
+            "c2c4 e7e5 b1c3",
+            "c2c4 g8f6 b1c3 e7e6",
+            "c2c4 c7c5 g1f3",
+            "g1f3 d7d5 g2g3",
+            "g1f3 g8f6 c2c4 g7g6",
+            "b2b3 e7e5 c1b2",
+            "g2g3 d7d5 f1g2",
+            "f2f4 d7d5 g1f3");
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+
+        String openingsFile = null;
+        long games = 1000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        EngineConfig a = EngineConfig.parse("depth=3");
+        EngineConfig b = EngineConfig.parse("depth=3");
+        double elo0 = 0;
+        double elo1 = 10;
+        double alpha = 0.05;
+        double beta = 0.05;
+        int maxPlies = 400;
+        int randomPlies = 2;
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--openings":
+                    openingsFile = args[i + 1];
+                    break;
+                case "--games":
+                    games = Long.parseLong(args[i + 1]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--a":
+                    a = EngineConfig.parse(args[i + 1]);
+                    break;
+                case "--b":
+                    b = EngineConfig.parse(args[i + 1]);
+                    break;
+                case "--elo0":
+                    elo0 = Double.parseDouble(args[i + 1]);
+                    break;
+                case "--elo1":
+                    elo1 = Double.parseDouble(args[i + 1]);
+                    break;
+                case "--alpha":
+                    alpha = Double.parseDouble(args[i + 1]);
+                    break;
+                case "--beta":
+                    beta = Double.parseDouble(args[i + 1]);
+                    break;
+                case "--maxplies":
+                    maxPlies = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--randomplies":
+                    randomPlies = Integer.parseInt(args[i + 1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        List<String> openings = (openingsFile == null) ? OPENINGS
+                : Files.readAllLines(Paths.get(openingsFile)).stream()
+                .map(String::trim)
+                .filter(x -> !x.isEmpty() && !x.startsWith("#"))
+                .collect(Collectors.toList());
+
+        if (randomPlies == 0 && games > 2L * openings.size())
+            System.out.println("Only " + openings.size() + " openings for " + games
+                    + " games, the same games will be played again");
+
+        MetricsReporter.start();
+
+        Sprt sprt = new Sprt(elo0, elo1, alpha, beta);
+        EngineConfig engineA = a;
+        EngineConfig engineB = b;
+        int plies = maxPlies;
+        int random = randomPlies;
+        ThreadLocal<Worker> workers = ThreadLocal.withInitial(() -> new Worker(engineA, engineB));
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        Semaphore inFlight = new Semaphore(threads * 2);
+        AtomicBoolean decided = new AtomicBoolean();
+        AtomicLong finished = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+        long start = System.nanoTime();
+
+        for (long game = 0; game < games && !decided.get(); game++) {
+
+            inFlight.acquire();
+            if (decided.get()) {
+                inFlight.release();
+                break;
+            }
+
+            // every opening is played twice, once with each engine as RED, after the same random plies
+            long pair = game / 2;
+            String opening = openings.get((int) (pair % openings.size()));
+            boolean aIsRed = game % 2 == 0;
+
+            pool.execute(() -> {
+                try {
+                    double result = workers.get().play(opening, pair, random, aIsRed, plies);
+                    sprt.add(result);
+
+                    long n = finished.incrementAndGet();
+                    if (sprt.decision() != 0)
+                        decided.set(true);
+                    if (n % REPORT_EVERY == 0)
+                        report(n, start, sprt);
+                } catch (ChessException e) {
+                    System.err.println("Skipping opening \"" + opening + "\": " + e.getMessage());
+                } catch (RuntimeException e) {
+                    // anything else is a bug in the engines, the game is left out of the test but counted
+                    errors.incrementAndGet();
+                    System.err.println("Game on opening \"" + opening + "\" failed: " + e);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        }
+
+        pool.shutdown();
+        pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+
+        report(finished.get(), start, sprt);
+        if (errors.get() > 0)
+            System.out.println(errors.get() + " games failed and were not scored");
+        int decision = sprt.decision();
+        System.out.println((decision > 0) ? "H1 accepted: A is stronger by at least " + elo1 + " Elo"
+                : (decision < 0) ? "H0 accepted: A is not stronger by " + elo1 + " Elo"
+                : "SPRT undecided");
+    }
+
+    private static void report(long games, long start, Sprt sprt) {
+
+        double seconds = Math.max(1e-9, (System.nanoTime() - start) / 1e9);
+        System.out.printf("Games %d  %.2f games/s  %s%n", games, games / seconds, sprt.summary());
+    }
+
+    private static class EngineConfig {
+
+        private int depth = MoveOrderer.MAX_PLY - 1;
+        private long nodes;
+        private int hash = 4;
+        private boolean quiescence = true;
+
+        static EngineConfig parse(String spec) {
+
+            EngineConfig config = new EngineConfig();
+            boolean depthSet = false;
+
+            for (String option : spec.split(",")) {
+
+                String[] kv = option.trim().split("=");
+                if (kv.length != 2)
+                    throw new IllegalArgumentException("Bad engine option " + option);
+
+                switch (kv[0]) {
+                    case "depth":
+                        config.depth = Integer.parseInt(kv[1]);
+                        depthSet = true;
+                        break;
+                    case "nodes":
+                        config.nodes = Long.parseLong(kv[1]);
+                        break;
+                    case "hash":
+                        config.hash = Integer.parseInt(kv[1]);
+                        break;
+                    case "qsearch":
+                        config.quiescence = Boolean.parseBoolean(kv[1]);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown engine option " + kv[0]);
+                }
+            }
+
+            if (!depthSet && config.nodes == 0)
+                throw new IllegalArgumentException("Engine spec needs a depth or nodes limit: " + spec);
+
+            return config;
+        }
+
+        Search newSearch() {
+
+            Search search = new Search(new TranspositionTable(hash));
+            search.setQuiescence(quiescence);
+            return search;
+        }
+    }
+
+    // each pool thread plays its games on its own match with its own pair of searches
+    private static class Worker {
+
+        private final ChessMatch chessMatch = new ChessMatch();
+        private final EngineConfig configA;
+        private final EngineConfig configB;
+        private final Search searchA;
+        private final Search searchB;
+        private final int[] moves = new int[MoveOrderer.MAX_MOVES];
+
+        Worker(EngineConfig configA, EngineConfig configB) {
+            this.configA = configA;
+            this.configB = configB;
+            this.searchA = configA.newSearch();
+            this.searchB = configB.newSearch();
+        }
+
+        // 1, 0.5 or 0 from the point of view of engine A
+        double play(String opening, long pair, int randomPlies, boolean aIsRed, int maxPlies) {
+
+            this.setUp(opening);
+            this.playRandom(new SplittableRandom(pair), randomPlies);
+            searchA.clear();
+            searchB.clear();
+
+            for (int ply = 0; ; ply++) {
+
+                if (!chessMatch.hasLegalMove()) {
+                    if (!chessMatch.getCheck())
+                        return 0.5;
+                    boolean aToMove = (chessMatch.getCurrentPlayer() == Color.RED) == aIsRed;
+                    return aToMove ? 0 : 1;
+                }
+
+                if (chessMatch.repetitionCount() >= 2 || chessMatch.getHalfMoveClock() >= 100 || ply >= maxPlies)
+                    return 0.5;
+
+                boolean aToMove = (chessMatch.getCurrentPlayer() == Color.RED) == aIsRed;
+                EngineConfig config = aToMove ? configA : configB;
+                int move = (aToMove ? searchA : searchB).search(chessMatch, config.depth, config.nodes, 0);
+
+                // an engine that cannot produce a legal move forfeits the game
+                if (move == Move.NONE || !chessMatch.makeMove(move)) {
+                    System.err.println("Engine " + (aToMove ? "A" : "B") + " returned no legal move in "
+                            + Fen.toFen(chessMatch) + ", scored as a loss");
+                    return aToMove ? 0 : 1;
+                }
+            }
+        }
+
+        private void setUp(String opening) {
+
+            if (opening.indexOf('/') >= 0) {
+                Fen.load(chessMatch, opening);
+                return;
+            }
+
+            Fen.load(chessMatch, Fen.START_POSITION);
+            for (String move : opening.split("\\s+"))
+                if (!Uci.playMove(chessMatch, move))
+                    throw new ChessException("Illegal opening move " + move);
+        }
+
+        // legal moves picked with the pair's seed, so both games of a pair start from the same position
+        private void playRandom(SplittableRandom random, int plies) {
+
+            for (int ply = 0; ply < plies; ply++) {
+
+                int n = chessMatch.generateMoves(moves);
+                boolean played = false;
+                while (n > 0 && !played) {
+                    int i = random.nextInt(n);
+                    played = chessMatch.makeMove(moves[i]);
+                    moves[i] = moves[--n];
+                }
+
+                if (!played)
+                    return;
+            }
+        }
+    }
+}
@@ -70,28 +70,45 @@ public class UI {
 
         for (int i = 0; i < pieces.length; i++) {
 
-            System.out.print((8 - i) + " ");
+            printRank(pieces.length - i, pieces.length);
             for (int j = 0; j < pieces[i].length; j++)
                 printPiece(pieces[i][j], false);
 
             System.out.println();
         }
 
-        System.out.println("  a b c d e f g h");
+        printFiles(pieces);
     }
 
     public static void printBoard(ChessPiece[][] pieces, boolean[][] possibleMoves) {
 
         for (int i = 0; i < pieces.length; i++) {
 
-            System.out.print((8 - i) + " ");
+            printRank(pieces.length - i, pieces.length);
             for (int j = 0; j < pieces[i].length; j++)
                 printPiece(pieces[i][j], possibleMoves[i][j]);
 
             System.out.println();
         }
 
-        System.out.println("  a b c d e f g h");
+        printFiles(pieces);
+    }
+
+    // right aligned so two digit ranks keep the columns straight
+    private static void printRank(int rank, int rows) {
+
+        if (rows >= 10 && rank < 10)
+            System.out.print(" ");
+        System.out.print(rank + " ");
+    }
+
+    private static void printFiles(ChessPiece[][] pieces) {
+
+        StringBuilder sb = new StringBuilder((pieces.length >= 10) ? "  " : " ");
+        for (int j = 0; j < pieces[0].length; j++)
+            sb.append(' ').append((char) ('a' + j));
+
+        System.out.println(sb);
     }
 
     private static void printPiece(ChessPiece piece, boolean background) {
@@ -120,16 +137,41 @@ public class UI {
 
     public static ChessPosition readChessPosition(Scanner sc) {
 
-        try {
+        ChessPosition position = parseChessPosition(sc.nextLine());
+        if (position == null)
+            throw new InputMismatchException("Error reading ChessPosition. Valid value are from a1 to p16");
 
-            String s = sc.nextLine();
-            char colummn = s.charAt(0);
-            int row = Integer.parseInt(s.substring(1));
-            return new ChessPosition(colummn, row);
+        return position;
+    }
+
+    // null instead of an exception when s is not a square, reading the characters in place
+    public static ChessPosition parseChessPosition(CharSequence s) {
+
+        int start = 0;
+        int end = s.length();
+        while (start < end && s.charAt(start) <= ' ')
+            start++;
+        while (end > start && s.charAt(end - 1) <= ' ')
+            end--;
+
+        if (end - start < 2 || end - start > 3)
+            return null;
 
-        } catch (RuntimeException e) {
-            throw new InputMismatchException("Error reading ChessPosition. Valid value are from a1 to h8");
+        char column = s.charAt(start);
+        if (column < 'a' || column >= 'a' + ChessPosition.MAX_SIZE)
+            return null;
+
+        int row = 0;
+        for (int i = start + 1; i < end; i++) {
+            if (s.charAt(i) < '0' || s.charAt(i) > '9')
+                return null;
+            row = row * 10 + s.charAt(i) - '0';
         }
+
+        if (row < 1 || row > ChessPosition.MAX_SIZE)
+            return null;
+
+        return new ChessPosition(column, row);
     }
 
     private static void printCapturedPieces(List<ChessPiece> captured) {
@@ -0,0 +1,376 @@
+package application;
+
+import chess.ChessException;
+import chess.ChessMatch;
+import chess.Color;
+import chess.Fen;
+import chess.Move;
+import chess.engine.Engine;
+import chess.engine.MateSolver;
+import chess.engine.MoveOrderer;
+import chess.engine.Network;
+import chess.engine.ParallelPerft;
+import chess.engine.Perft;
+import chess.engine.Search;
+import chess.metrics.Metrics;
+import chess.metrics.MetricsReporter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+public class Uci {
+
+    private static final String[] BENCH_POSITIONS = {
+            Fen.START_POSITION,
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+            "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+            "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+            "2r3k1/pp3ppp/2n5/3p4/3P4/2N5/PP3PPP/2R3K1 w - - 0 25",
+            "6k1/5ppp/8/8/8/8/5PPP/3R2K1 w - - 0 1"
+    };
+
+    // positions with known perft counts: start, Kiwipete, endgame, position 4 and position 5
+    private static final String[][] PERFT_POSITIONS = {
+            {Fen.START_POSITION, "4", "197281"},
+            {BENCH_POSITIONS[1], "3", "97862"},
+            {BENCH_POSITIONS[2], "5", "674624"},
+            {BENCH_POSITIONS[3], "4", "422333"},
+            {BENCH_POSITIONS[4], "3", "62379"}
+    };
+
+    private static final int BENCH_DEPTH = 4;
+    // go mate gets a node limit even when none is given, the proof-number search may not end otherwise
+    private static final long MATE_NODES = 20_000_000;
+
+    private final PrintStream out;
+    private final Engine engine;
+    private ChessMatch chessMatch;
+
+    public Uci(PrintStream out) {
+        this.out = out;
+        this.engine = new Engine();
+        this.chessMatch = new ChessMatch();
+    }
+
+    public static void main(String[] args) throws IOException {
+
+        MetricsReporter.start();
+        Uci uci = new Uci(System.out);
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
+
+        String line;
+        while ((line = in.readLine()) != null)
+            if (!uci.command(line.trim()))
+                break;
+
+        uci.engine.stop();
+        uci.engine.waitForSearch();
+    }
+
+    // returns false on quit
+    public boolean command(String line) {
+
+        if (line.isEmpty())
+            return true;
+
+        String[] tokens = line.split("\\s+");
+        try {
+            switch (tokens[0]) {
+                case "uci":
+                    out.println("id name Chess System Java Console");
+                    out.println("id author helifiora");
+                    out.println("option name Hash type spin default " + Engine.DEFAULT_HASH + " min 1 max 4096");
+                    out.println("option name Threads type spin default 1 min 1 max 256");
+                    out.println("option name EvalFile type string default <empty>");
+                    out.println("uciok");
+                    break;
+                case "isready":
+                    // answered at once, even while a search is running
+                    out.println("readyok");
+                    break;
+                case "ucinewgame":
+                    engine.newGame();
+                    chessMatch = new ChessMatch();
+                    break;
+                case "setoption":
+                    this.setOption(tokens);
+                    break;
+                case "position":
+                    engine.stop();
+                    engine.waitForSearch();
+                    this.position(tokens);
+                    break;
+                case "go":
+                    this.go(tokens);
+                    break;
+                case "stop":
+                    engine.stop();
+                    engine.waitForSearch();
+                    break;
+                case "bench":
+                    this.bench((tokens.length > 1) ? Integer.parseInt(tokens[1]) : BENCH_DEPTH);
+                    break;
+                case "perftcheck":
+                    this.perftCheck();
+                    break;
+                case "d":
+                    out.println(Fen.toFen(chessMatch));
+                    break;
+                case "quit":
+                    return false;
+                default:
+                    out.println("info string unknown command " + tokens[0]);
+            }
+        } catch (ChessException | NumberFormatException e) {
+            out.println("info string " + e.getMessage());
+        }
+
+        out.flush();
+        return true;
+    }
+
+    private void setOption(String[] tokens) {
+
+        // setoption name <name> value <value>
+        if (tokens.length < 5 || !tokens[1].equals("name") || !tokens[3].equals("value"))
+            throw new ChessException("Expected: setoption name <name> value <value>");
+
+        if (tokens[2].equalsIgnoreCase("Hash"))
+            engine.setHashSize(Math.max(1, Integer.parseInt(tokens[4])));
+        else if (tokens[2].equalsIgnoreCase("Threads"))
+            engine.setThreads(Integer.parseInt(tokens[4]));
+        else if (tokens[2].equalsIgnoreCase("EvalFile"))
+            this.loadNetwork(String.join(" ", Arrays.copyOfRange(tokens, 4, tokens.length)));
+        else
+            throw new ChessException("Unknown option " + tokens[2]);
+    }
+
+    // <empty> goes back to the hand-written evaluation
+    private void loadNetwork(String file) {
+
+        if (file.isEmpty() || file.equals("<empty>")) {
+            engine.setNetwork(null);
+            out.println("info string using the hand-written evaluation");
+            return;
+        }
+
+        try {
+            Network network = Network.load(Paths.get(file));
+            engine.setNetwork(network);
+            out.println("info string network " + file + " loaded for " + network.getRows() + "x" + network.getColumns() + " boards");
+        } catch (IOException e) {
+            throw new ChessException("Cannot load " + file + ": " + e.getMessage());
+        }
+    }
+
+    private void position(String[] tokens) {
+
+        int i = 1;
+        ChessMatch match;
+
+        if (tokens.length > 1 && tokens[1].equals("startpos")) {
+            match = new ChessMatch();
+            i = 2;
+        } else if (tokens.length > 1 && tokens[1].equals("fen")) {
+
+            StringBuilder fen = new StringBuilder();
+            for (i = 2; i < tokens.length && !tokens[i].equals("moves"); i++)
+                fen.append(tokens[i]).append(' ');
+            match = Fen.parse(fen.toString());
+        } else
+            throw new ChessException("Expected: position startpos|fen <fen> [moves ...]");
+
+        if (i < tokens.length && tokens[i].equals("moves"))
+            for (i++; i < tokens.length; i++)
+                if (!playMove(match, tokens[i]))
+                    throw new ChessException("Illegal move " + tokens[i]);
+
+        this.chessMatch = match;
+    }
+
+    private void go(String[] tokens) {
+
+        int depth = MoveOrderer.MAX_PLY - 1;
+        long nodes = 0;
+        long millis = 0;
+        long time = 0;
+        long increment = 0;
+        int movesToGo = 30;
+        int mateMoves = 0;
+        boolean red = chessMatch.getCurrentPlayer() == Color.RED;
+
+        for (int i = 1; i < tokens.length; i++) {
+
+            String value = (i + 1 < tokens.length) ? tokens[i + 1] : "0";
+            switch (tokens[i]) {
+                case "perft":
+                    this.perft(Integer.parseInt(value));
+                    return;
+                case "mate":
+                    mateMoves = Integer.parseInt(value);
+                    break;
+                case "depth":
+                    depth = Integer.parseInt(value);
+                    break;
+                case "nodes":
+                    nodes = Long.parseLong(value);
+                    break;
+                case "movetime":
+                    millis = Long.parseLong(value);
+                    break;
+                case "wtime":
+                    if (red)
+                        time = Long.parseLong(value);
+                    break;
+                case "btime":
+                    if (!red)
+                        time = Long.parseLong(value);
+                    break;
+                case "winc":
+                    if (red)
+                        increment = Long.parseLong(value);
+                    break;
+                case "binc":
+                    if (!red)
+                        increment = Long.parseLong(value);
+                    break;
+                case "movestogo":
+                    movesToGo = Math.max(1, Integer.parseInt(value));
+                    break;
+                default:
+                    continue;
+            }
+            i++;
+        }
+
+        if (mateMoves > 0) {
+            this.mate(mateMoves, (nodes > 0) ? nodes : MATE_NODES);
+            return;
+        }
+
+        if (millis == 0 && time > 0)
+            millis = Math.max(1, Math.min(time / 2, time / movesToGo + increment / 2));
+
+        long start = System.currentTimeMillis();
+        engine.start(chessMatch, depth, nodes, millis,
+                (d, score, n, pv) -> this.info(d, score, n, System.currentTimeMillis() - start, pv),
+                move -> {
+                    out.println("bestmove " + ((move == Move.NONE) ? "0000" : Move.toString(move, chessMatch.getRows())));
+                    out.flush();
+                });
+    }
+
+    private void info(int depth, int score, long nodes, long millis, int[] pv) {
+
+        StringBuilder sb = new StringBuilder("info depth ").append(depth);
+        if (Math.abs(score) >= Search.MATE - MoveOrderer.MAX_PLY) {
+            int plies = Search.MATE - Math.abs(score);
+            sb.append(" score mate ").append((score > 0) ? (plies + 1) / 2 : -(plies / 2));
+        } else
+            sb.append(" score cp ").append(score);
+
+        sb.append(" nodes ").append(nodes).append(" nps ").append(nodes * 1000 / Math.max(1, millis));
+        sb.append(" time ").append(millis).append(" pv");
+        for (int move : pv)
+            Move.append(sb.append(' '), move, chessMatch.getRows());
+
+        out.println(sb);
+        out.flush();
+    }
+
+    // with more than one thread the subtrees are counted on a fork/join pool with a shared cache
+    private void perft(int depth) {
+
+        long start = System.nanoTime();
+        long nodes;
+        if (engine.getThreads() > 1) {
+            ParallelPerft perft = new ParallelPerft(engine.getThreads(), ParallelPerft.DEFAULT_HASH);
+            nodes = perft.divide(chessMatch, depth, out);
+            perft.shutdown();
+        } else
+            nodes = new Perft().divide(chessMatch, depth, out);
+        long millis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+
+        out.println();
+        out.println("Nodes searched: " + nodes);
+        out.println("Time (ms): " + millis);
+        out.println("Nodes per second: " + nodes * 1000 / millis);
+    }
+
+    // counts every regression position and reports the ones that differ from the reference
+    private void perftCheck() {
+
+        engine.waitForSearch();
+        int failed = 0;
+        for (String[] position : PERFT_POSITIONS) {
+            long nodes = new Perft().perft(Fen.parse(position[0]), Integer.parseInt(position[1]));
+            boolean ok = nodes == Long.parseLong(position[2]);
+            if (!ok)
+                failed++;
+            out.println((ok ? "ok " : "FAILED ") + position[0] + " depth " + position[1] + ": " + nodes
+                    + (ok ? "" : " expected " + position[2]));
+        }
+
+        out.println((failed == 0) ? "All perft counts match" : failed + " perft counts differ");
+    }
+
+    // go mate N [nodes M]: proof-number search for the shortest mate in at most N moves
+    private void mate(int moves, long nodes) {
+
+        engine.waitForSearch();
+        MateSolver solver = new MateSolver(Engine.DEFAULT_HASH);
+        solver.setNodeLimit(nodes);
+        int[] line = solver.solve(chessMatch, moves);
+
+        StringBuilder sb = new StringBuilder("info");
+        if (line.length > 0) {
+            sb.append(" score mate ").append((line.length + 1) / 2).append(" nodes ").append(solver.getNodes()).append(" pv");
+            for (int move : line)
+                Move.append(sb.append(' '), move, chessMatch.getRows());
+        } else if (solver.isStopped())
+            sb.append(" string mate search stopped after ").append(solver.getNodes()).append(" nodes, no mate in ").append(moves).append(" found");
+        else
+            sb.append(" string no mate in ").append(moves).append(" nodes ").append(solver.getNodes());
+
+        out.println(sb);
+        out.println("bestmove " + ((line.length == 0) ? "0000" : Move.toString(line[0], chessMatch.getRows())));
+    }
+
+    private void bench(int depth) {
+
+        engine.waitForSearch();
+        long nodes = 0;
+        long probes = Metrics.getInstance().getPawnProbes();
+        long hits = Metrics.getInstance().getPawnHits();
+        long start = System.nanoTime();
+
+        for (String fen : BENCH_POSITIONS) {
+            engine.newGame();
+            engine.search(Fen.parse(fen), depth, 0, 0, null);
+            nodes += engine.getNodes();
+        }
+
+        long millis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        out.println("Positions: " + BENCH_POSITIONS.length);
+        out.println("Nodes searched: " + nodes);
+        out.println("Time (ms): " + millis);
+        out.println("Nodes per second: " + nodes * 1000 / millis);
+
+        probes = Metrics.getInstance().getPawnProbes() - probes;
+        hits = Metrics.getInstance().getPawnHits() - hits;
+        if (probes > 0)
+            out.printf("Pawn hash hits: %.1f%%%n", hits * 100.0 / probes);
+    }
+
+    static boolean playMove(ChessMatch chessMatch, String text) {
+
+        int move = Move.parse(text, chessMatch.getRows());
+        return move != Move.NONE && chessMatch.isPossibleMove(move) && chessMatch.makeMove(move);
+    }
+}
@@ -1,9 +1,12 @@
 package boardgame;
 
+// a rectangular board of pieces addressed by row and column; a board made here keeps its pieces in
+// a matrix allocated on the first placement, the chess mailbox extends it and keeps them in its
+// own bordered array, so the methods below work the same on either
 public class Board {
 
-    private int rows;
-    private int columns;
+    private final int rows;
+    private final int columns;
     private Piece[][] pieces;
 
     public Board(int rows, int columns) {
@@ -13,7 +16,18 @@ public class Board {
 
         this.rows = rows;
         this.columns = columns;
-        this.pieces = new Piece[this.rows][this.columns];
+    }
+
+    // the storage behind the board, the position is already known to exist
+    protected Piece pieceAt(int row, int column) {
+        return (pieces == null) ? null : pieces[row][column];
+    }
+
+    protected void putPieceAt(int row, int column, Piece piece) {
+
+        if (pieces == null)
+            pieces = new Piece[rows][columns];
+        pieces[row][column] = piece;
     }
 
     public Piece piece(int row, int column) {
@@ -21,15 +35,11 @@ public class Board {
         if (!this.positionExists(row, column))
             throw new BoardException("Position not on the board");
 
-        return this.pieces[row][column];
+        return this.pieceAt(row, column);
     }
 
     public Piece piece(Position position) {
-
-        if (!this.positionExists(position))
-            throw new BoardException("Position not on the board");
-
-        return this.pieces[position.getRow()][position.getColumn()];
+        return this.piece(position.getRow(), position.getColumn());
     }
 
     public void placePiece(Piece piece, Position position) {
@@ -37,28 +47,27 @@ public class Board {
         if (this.thereIsAPiece(position))
             throw new BoardException("There is already a piece on position " + position);
 
-        this.pieces[position.getRow()][position.getColumn()] = piece;
-        piece.position = position;
+        this.putPieceAt(position.getRow(), position.getColumn(), piece);
+        piece.board = this;
+        piece.row = position.getRow();
+        piece.column = position.getColumn();
     }
 
-    public Piece removePiece(Position position){
+    public Piece removePiece(Position position) {
 
-        if (!this.positionExists(position))
-            throw new BoardException("Position not on the board");
-
-        if(this.piece(position) == null)
+        Piece aux = this.piece(position);
+        if (aux == null)
             return null;
 
-        Piece aux = this.piece(position);
-        aux.position = null;
-        this.pieces[position.getRow()][position.getColumn()] = null;
+        this.putPieceAt(position.getRow(), position.getColumn(), null);
+        aux.row = -1;
+        aux.column = 0;
 
         return aux;
     }
 
-    private boolean positionExists(int row, int column) {
-        return (row >= 0 && row < this.rows &&
-                column >= 0 && column < this.columns);
+    protected boolean positionExists(int row, int column) {
+        return row >= 0 && row < rows && column >= 0 && column < columns;
     }
 
     public boolean positionExists(Position position) {
@@ -66,11 +75,7 @@ public class Board {
     }
 
     public boolean thereIsAPiece(Position position) {
-
-        if (!this.positionExists(position))
-            throw new BoardException("Position not on the board");
-
-        return (this.piece(position) != null);
+        return this.piece(position) != null;
     }
 
     public int getRows() {
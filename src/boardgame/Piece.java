@@ -2,12 +2,16 @@ package boardgame;
 
 public abstract class Piece {
 
-    protected Position position;
-    private Board board;
+    // where the piece stands, row is -1 while it is off the board
+    protected int row = -1;
+    protected int column;
+    protected Board board;
+
+    public Piece() {
+    }
 
     public Piece(Board board) {
         this.board = board;
-        this.position = null;
     }
 
     public abstract boolean[][] possibleMoves();
@@ -30,4 +34,8 @@ public abstract class Piece {
     protected Board getBoard() {
         return board;
     }
+
+    public Position getPosition() {
+        return (row < 0) ? null : new Position(row, column);
+    }
 }
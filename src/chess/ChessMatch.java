@@ -1,176 +1,470 @@
 package chess;
 
-import boardgame.Board;
 import boardgame.Piece;
 import boardgame.Position;
+import chess.engine.Evaluation;
+import chess.engine.Network;
+import chess.engine.Zobrist;
+import chess.metrics.CheckMateEvent;
+import chess.metrics.Metrics;
+import chess.metrics.MoveEvent;
+import chess.metrics.PossibleMovesEvent;
+import chess.metrics.PromotionEvent;
 import chess.pieces.*;
 
+import java.lang.ref.Cleaner;
 import java.security.InvalidParameterException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class ChessMatch {
 
+    private static final AtomicLong NEXT_ID = new AtomicLong();
+    private static final Undo[] NO_HISTORY = new Undo[0];
+
+    // tells the matches of a process apart in flight recordings
+    private final long id = NEXT_ID.incrementAndGet();
+
     private int turn;
     private boolean check;
     private boolean checkMate;
     private Color currentPlayer;
-    private Board board;
+    private Mailbox mailbox;
     private ChessPiece enPassantVulnerable;
     private ChessPiece promoted;
 
     private List<Piece> piecesOnTheBoard;
+    private List<Piece> piecesOnTheBoardView;
     private List<Piece> capturedPieces;
+    // pieces taken off by clear, placeNewPiece hands them out again
+    private List<ChessPiece> spares;
+
+    private Evaluation evaluation;
+    private long hash;
+    private long enPassantKey;
+    private int halfMoveClock;
+
+    private Undo[] history;
+    private int historySize;
+
+    // the moves of one piece at a time, for hasLegalMove, isCheckMate and possibleMoves
+    private int[] moveBuffer;
+
+    private Cleaner.Cleanable activeMatch;
 
     public ChessMatch() {
+        this(Variant.STANDARD);
+    }
+
+    // only matches started here count as active games, the copies made by Fen.parse for
+    // search, perft and analysis do not
+    public ChessMatch(Variant variant) {
+        this(variant.getRows(), variant.getColumns());
+        this.initialSetup(variant);
+        this.activeMatch = Metrics.matchStarted(this);
+    }
+
+    // the position of other, as Fen.parse(Fen.toFen(other)) but without going through text, and the
+    // hashes back to its last pawn move or capture so a search on the copy still sees repetitions;
+    // copies do not count as active games either
+    public ChessMatch(ChessMatch other) {
+
+        this(other.getRows(), other.getColumns());
+
+        for (int i = 0; i < other.piecesOnTheBoard.size(); i++) {
+
+            ChessPiece p = (ChessPiece) other.piecesOnTheBoard.get(i);
+            ChessPiece copy = newPiece(p.getType(), p.getColor());
+            copy.setMoveCount(p.getMoveCount());
+            this.placePiece(copy, new Position(p.row(), p.column()));
+            this.piecesOnTheBoard.add(copy);
+
+            if (p == other.enPassantVulnerable)
+                this.setEnPassantVulnerable(copy);
+        }
+
+        if (other.currentPlayer != Color.RED)
+            this.hash ^= Zobrist.side(Color.BLUE);
+
+        this.currentPlayer = other.currentPlayer;
+        this.turn = other.turn;
+        this.halfMoveClock = other.halfMoveClock;
+        this.check = other.check;
+        this.checkMate = other.checkMate;
+        this.setNetwork(other.evaluation.getNetwork());
+
+        // the copied entries only carry a hash, they cannot be unmade
+        for (int i = Math.max(0, other.historySize - other.halfMoveClock); i < other.historySize; i++) {
+            this.nextUndo(Move.NONE).hash = other.history[i].hash;
+            historySize++;
+        }
+    }
+
+    // an empty match is filled in by Fen
+    ChessMatch(int rows, int columns) {
+
+        if (rows < 4 || columns < 5 || rows > ChessPosition.MAX_SIZE || columns > ChessPosition.MAX_SIZE)
+            throw new ChessException("Boards must have from 4 to " + ChessPosition.MAX_SIZE + " rows and from 5 columns");
+
         this.piecesOnTheBoard = new ArrayList<>();
+        this.piecesOnTheBoardView = Collections.unmodifiableList(this.piecesOnTheBoard);
+        this.evaluation = new Evaluation(rows, columns);
         this.capturedPieces = new ArrayList<>();
-        this.board = new Board(8, 8);
+        this.history = NO_HISTORY;
+        this.mailbox = new Mailbox(rows, columns, this);
         this.turn = 1;
         this.currentPlayer = Color.RED;
-        this.initialSetup();
     }
 
     public ChessPiece performChessMove(ChessPosition sourcePosition, ChessPosition targetPosition) {
 
-        Position source = sourcePosition.toPosition();
-        Position target = targetPosition.toPosition();
+        MoveEvent event = new MoveEvent();
+        if (event.isEnabled()) {
+            event.matchId = id;
+            event.piece = this.pieceName(sourcePosition.toPosition(mailbox.getRows()));
+            event.move = "" + sourcePosition + targetPosition;
+        }
+        event.begin();
+
+        try {
+            return this.playChessMove(this.toPosition(sourcePosition), this.toPosition(targetPosition), null);
+        } catch (ChessException e) {
+            event.rejected = true;
+            event.reason = e.getMessage();
+            throw e;
+        } finally {
+            event.ply = event.rejected ? turn : this.lastPly();
+            event.commit();
+        }
+    }
+
+    // plays a packed move with its promotion in one step; without a promotion type a pawn reaching
+    // the last row becomes a queen that replacePromotedPiece can still exchange, as above
+    public ChessPiece performChessMove(int move) {
+
+        MoveEvent event = new MoveEvent();
+        if (event.isEnabled()) {
+            event.matchId = id;
+            event.piece = this.pieceName(new Position(Move.sourceRow(move), Move.sourceColumn(move)));
+            event.move = Move.toString(move, mailbox.getRows());
+        }
+        event.begin();
+
+        try {
+            Position source = this.toPosition(Move.sourceRow(move), Move.sourceColumn(move));
+            Position target = this.toPosition(Move.targetRow(move), Move.targetColumn(move));
+            return this.playChessMove(source, target, Move.promotion(move));
+        } catch (ChessException e) {
+            event.rejected = true;
+            event.reason = e.getMessage();
+            throw e;
+        } finally {
+            event.ply = event.rejected ? turn : this.lastPly();
+            event.commit();
+        }
+    }
+
+    // the ply of the move just played, read once it is committed; a mate leaves the turn with the winner
+    private int lastPly() {
+        return checkMate ? turn : turn - 1;
+    }
+
+    private ChessPiece playChessMove(Position source, Position target, PieceType promotion) {
 
         this.validateSourcePosition(source);
         this.validateTargetPosition(source, target);
 
+        boolean lastRow = this.promotes(source, target);
+        if (promotion != null && (!lastRow || !this.isPromotionType(promotion)))
+            throw new ChessException("Invalid promotion to " + promotion);
+
+        // recorded as makeMove does, so the clock and repetitions count the game's own moves too
+        Undo undo = this.nextUndo(Move.of(source.getRow(), source.getColumn(), target.getRow(), target.getColumn()));
+
         Piece capturedPiece = this.makeMove(source, target);
         if (testCheck(currentPlayer)) {
             this.undoMove(source, target, capturedPiece);
+            this.hash = undo.hash;
             throw new ChessException("You can't put yourself in check");
         }
 
-        ChessPiece movedPiece = (ChessPiece) board.piece(target);
+        undo.capturedPiece = capturedPiece;
+        historySize++;
+
+        ChessPiece movedPiece = this.piece(target);
+        this.halfMoveClock = (movedPiece instanceof Pawn || capturedPiece != null) ? 0 : halfMoveClock + 1;
 
         // #specialmove promotion
         promoted = null;
-        if (movedPiece instanceof Pawn) {
-
-            if ((movedPiece.getColor() == Color.RED && target.getRow() == 0) || (movedPiece.getColor() == Color.BLUE && target.getRow() == 7)) {
-
-                promoted = (ChessPiece) board.piece(target);
-                promoted = replacePromotedPiece("Q");
-            }
+        if (lastRow) {
+            promoted = movedPiece;
+            undo.promotedPawn = movedPiece;
+            if (promotion != null) {
+                this.promote(promotion);
+                promoted = null;
+            } else
+                promoted = this.promote(PieceType.QUEEN);
         }
 
         check = testCheck(opponent(currentPlayer));
 
-        if (testCheckMate(opponent(currentPlayer)))
+        if (testCheckMate(opponent(currentPlayer))) {
             checkMate = true;
-        else
+            if (activeMatch != null)
+                activeMatch.clean();
+        } else
             this.nextTurn();
 
         // #specialmove en passant
-        if (movedPiece instanceof Pawn && target.getRow() == source.getRow() - 2 || target.getRow() == source.getRow() + 2)
-            enPassantVulnerable = movedPiece;
+        if (movedPiece instanceof Pawn && Math.abs(target.getRow() - source.getRow()) == 2)
+            this.setEnPassantVulnerable(movedPiece);
         else
-            enPassantVulnerable = null;
+            this.setEnPassantVulnerable(null);
+
+        if (promoted != null)
+            this.queenPromoted();
 
+        Metrics.movePlayed();
         return (ChessPiece) capturedPiece;
     }
 
+    private Position toPosition(ChessPosition chessPosition) {
+
+        Position position = chessPosition.toPosition(mailbox.getRows());
+        if (!mailbox.exists(position.getRow(), position.getColumn()))
+            throw new ChessException("Position " + chessPosition + " is not on the board");
+
+        return position;
+    }
+
+    private Position toPosition(int row, int column) {
+
+        Position position = new Position(row, column);
+        if (!mailbox.exists(row, column))
+            throw new ChessException("Position " + (char) ('a' + column) + (mailbox.getRows() - row) + " is not on the board");
+
+        return position;
+    }
+
+    // whether the move takes a pawn of the current player to its last row, so the UI can ask for the promotion type first
+    public boolean promotes(int move) {
+
+        Position source = new Position(Move.sourceRow(move), Move.sourceColumn(move));
+        Position target = new Position(Move.targetRow(move), Move.targetColumn(move));
+        return mailbox.exists(source.getRow(), source.getColumn()) && mailbox.exists(target.getRow(), target.getColumn())
+                && this.promotes(source, target);
+    }
+
+    private boolean promotes(Position source, Position target) {
+
+        ChessPiece p = this.piece(source);
+        return p instanceof Pawn && p.getColor() == currentPlayer
+                && target.getRow() == ((p.getColor() == Color.RED) ? 0 : mailbox.getRows() - 1);
+    }
+
     private void validateSourcePosition(Position position) {
-        if (!board.thereIsAPiece(position))
+        ChessPiece p = this.piece(position);
+        if (p == null)
             throw new ChessException("There is no piece on source position");
 
-        if (currentPlayer != ((ChessPiece) board.piece(position)).getColor())
+        if (currentPlayer != p.getColor())
             throw new ChessException("The chosen piece is not yours");
 
-        if (!board.piece(position).isThereAnyPossibleMove())
+        if (!MoveRules.of(p.getType()).hasMove(this, mailbox, p, mailbox.index(p.row(), p.column())))
             throw new ChessException("There is no possible moves for the chosen piece");
     }
 
     public ChessPiece replacePromotedPiece(String type) {
 
+        PromotionEvent event = new PromotionEvent();
+        if (event.isEnabled()) {
+            event.matchId = id;
+            event.piece = type;
+        }
+        event.begin();
+
+        try {
+            return this.promote(type);
+        } catch (RuntimeException e) {
+            event.rejected = true;
+            event.reason = e.getMessage();
+            throw e;
+        } finally {
+            event.ply = this.lastPly();
+            event.commit();
+        }
+    }
+
+    // the queen a pawn becomes when the move names no promotion, reported like replacePromotedPiece
+    // once the move is committed
+    private void queenPromoted() {
+
+        PromotionEvent event = new PromotionEvent();
+        if (event.shouldCommit()) {
+            event.matchId = id;
+            event.ply = this.lastPly();
+            event.piece = "Q";
+            event.commit();
+        }
+    }
+
+    private ChessPiece promote(String type) {
+
         if (promoted == null)
             throw new IllegalStateException("There is no piece to be promoted");
 
-        if (!type.equals("B") && !type.equals("N") && !type.equals("R") && !type.equals("Q"))
+        PieceType pieceType = (type.length() == 1 && Character.isUpperCase(type.charAt(0))) ? PieceType.fromLetter(type.charAt(0)) : null;
+        if (pieceType == null || !this.isPromotionType(pieceType))
             throw new InvalidParameterException("Invalid type for promotion");
 
-        Position pos = promoted.getChessPosition().toPosition();
-        Piece p = board.removePiece(pos);
+        return this.promote(pieceType);
+    }
+
+    private ChessPiece promote(PieceType type) {
+
+        Position pos = promoted.getPosition();
+        Piece p = this.removePiece(pos);
         piecesOnTheBoard.remove(p);
 
         ChessPiece nPiece = newPiece(type, promoted.getColor());
-        board.placePiece(nPiece, pos);
+        this.placePiece(nPiece, pos);
         piecesOnTheBoard.add(nPiece);
 
         return nPiece;
     }
 
-    private ChessPiece newPiece(String type, Color color) {
+    private ChessPiece newPiece(PieceType type, Color color) {
 
-        if (type.equals("B"))
-            return new Bishop(board, color);
+        ChessPiece piece = pieceOf(type, color);
+        piece.setBoard(mailbox);
+        return piece;
+    }
 
-        if (type.equals("N"))
-            return new Knight(board, color);
+    private static ChessPiece pieceOf(PieceType type, Color color) {
 
-        if (type.equals("Q"))
-            return new Queen(board, color);
+        if (type == PieceType.PAWN)
+            return new Pawn(color);
 
-        return new Rook(board, color);
+        if (type == PieceType.KING)
+            return new King(color);
+
+        if (type == PieceType.BISHOP)
+            return new Bishop(color);
+
+        if (type == PieceType.KNIGHT)
+            return new Knight(color);
+
+        if (type == PieceType.QUEEN)
+            return new Queen(color);
+
+        if (type == PieceType.ARCHBISHOP)
+            return new Archbishop(color);
+
+        if (type == PieceType.CHANCELLOR)
+            return new Chancellor(color);
+
+        return new Rook(color);
+    }
+
+    // archbishops and chancellors only take part on boards wider than the standard one
+    private boolean hasVariantPieces() {
+        return mailbox.getColumns() > 8;
+    }
+
+    private boolean isPromotionType(PieceType type) {
+
+        if (type == PieceType.ARCHBISHOP || type == PieceType.CHANCELLOR)
+            return this.hasVariantPieces();
+
+        return type != PieceType.PAWN && type != PieceType.KING;
     }
 
     private void validateTargetPosition(Position source, Position target) {
 
-        if (!board.piece(source).possibleMove(target))
+        if (!this.canMove(this.piece(source), target.getRow(), target.getColumn()))
             throw new ChessException("The chosen piece can't move to target position");
     }
 
+    // whether one of the pseudo-legal moves of piece goes to row/column, whatever the promotion
+    private boolean canMove(ChessPiece piece, int row, int column) {
+        int from = mailbox.index(piece.row(), piece.column());
+        return MoveRules.of(piece.getType()).canMove(this, mailbox, piece, from, mailbox.index(row, column));
+    }
+
     public boolean[][] possibleMoves(ChessPosition sourcePosition) {
 
-        Position p = sourcePosition.toPosition();
-        validateSourcePosition(p);
-        return board.piece(p).possibleMoves();
+        PossibleMovesEvent event = new PossibleMovesEvent();
+        if (event.isEnabled()) {
+            event.matchId = id;
+            event.ply = turn;
+            event.piece = this.pieceName(sourcePosition.toPosition(mailbox.getRows()));
+            event.square = sourcePosition.toString();
+        }
+        event.begin();
+
+        Metrics.possibleMoves();
+        try {
+            Position p = this.toPosition(sourcePosition);
+            validateSourcePosition(p);
+            return this.possibleMoves(this.piece(p));
+        } catch (ChessException e) {
+            event.rejected = true;
+            event.reason = e.getMessage();
+            throw e;
+        } finally {
+            event.commit();
+        }
+    }
+
+    boolean[][] possibleMoves(ChessPiece piece) {
+
+        boolean[][] matrix = new boolean[mailbox.getRows()][mailbox.getColumns()];
+        int[] moves = this.moveBuffer();
+        int n = this.generateMoves(piece, moves, 0);
+        for (int i = 0; i < n; i++)
+            matrix[Move.targetRow(moves[i])][Move.targetColumn(moves[i])] = true;
+
+        return matrix;
+    }
+
+    // for the flight recorder events, null when the square is empty or off the board
+    private String pieceName(Position position) {
+
+        if (!mailbox.exists(position.getRow(), position.getColumn()) || this.piece(position) == null)
+            return null;
+        return this.piece(position).getType().name();
     }
 
     private Piece makeMove(Position source, Position target) {
-        ChessPiece p = (ChessPiece) board.removePiece(source);
+        Metrics.makeMove();
+        ChessPiece p = (ChessPiece) this.removePiece(source);
         p.increaseMoveCount();
-        Piece capturedPiece = board.removePiece(target);
-        board.placePiece(p, target);
+        Piece capturedPiece = this.removePiece(target);
+        this.placePiece(p, target);
 
         if (capturedPiece != null) {
             this.piecesOnTheBoard.remove(capturedPiece);
             this.capturedPieces.add(capturedPiece);
         }
 
-        // #specialmove castling kingside rook
-        if (p instanceof King && target.getColumn() == source.getColumn() + 2) {
-            Position sourceT = new Position(source.getRow(), source.getColumn() + 3);
-            Position targetT = new Position(source.getRow(), source.getColumn() + 1);
-            ChessPiece rook = (ChessPiece) board.removePiece(sourceT);
-            board.placePiece(rook, targetT);
-            rook.increaseMoveCount();
-        }
-        // #specialmove castling queenside rook
-        if (p instanceof King && target.getColumn() == source.getColumn() - 2) {
-            Position sourceT = new Position(source.getRow(), source.getColumn() - 4);
-            Position targetT = new Position(source.getRow(), source.getColumn() - 1);
-            ChessPiece rook = (ChessPiece) board.removePiece(sourceT);
-            board.placePiece(rook, targetT);
+        // #specialmove castling, the rook comes from the corner to the other side of the king
+        if (p instanceof King && Math.abs(target.getColumn() - source.getColumn()) >= 2) {
+            Position sourceT = this.castlingRookSource(source, target);
+            Position targetT = this.castlingRookTarget(source, target);
+            ChessPiece rook = (ChessPiece) this.removePiece(sourceT);
             rook.increaseMoveCount();
+            this.placePiece(rook, targetT);
         }
 
-        // #specialmove en passant
+        // #specialmove en passant, the captured pawn stands beside the source square
         if (p instanceof Pawn) {
             if (source.getColumn() != target.getColumn() && capturedPiece == null) {
 
-                Position pawnPosition;
-                if (p.getColor() == Color.RED)
-                    pawnPosition = new Position(target.getRow() + 1, target.getColumn());
-                else
-                    pawnPosition = new Position(target.getRow() - 1, target.getColumn());
-
-                capturedPiece = board.removePiece(pawnPosition);
+                Position pawnPosition = new Position(source.getRow(), target.getColumn());
+                capturedPiece = this.removePiece(pawnPosition);
                 capturedPieces.add(capturedPiece);
                 piecesOnTheBoard.remove(capturedPiece);
             }
@@ -180,50 +474,288 @@ public class ChessMatch {
     }
 
     private void undoMove(Position source, Position target, Piece capturedPiece) {
+        Metrics.undoMove();
 
-        ChessPiece p = (ChessPiece) board.removePiece(target);
+        ChessPiece p = (ChessPiece) this.removePiece(target);
         p.decreaseMoveCount();
-        this.board.placePiece(p, source);
+        this.placePiece(p, source);
 
         if (capturedPiece != null) {
-            this.board.placePiece(capturedPiece, target);
+            this.placePiece(capturedPiece, target);
             this.capturedPieces.remove(capturedPiece);
             this.piecesOnTheBoard.add(capturedPiece);
         }
 
-        // #specialmove castling kingside rook
-        if (p instanceof King && target.getColumn() == source.getColumn() + 2) {
-            Position sourceT = new Position(source.getRow(), source.getColumn() + 3);
-            Position targetT = new Position(source.getRow(), source.getColumn() + 1);
-            ChessPiece rook = (ChessPiece) board.removePiece(targetT);
-            board.placePiece(rook, sourceT);
-            rook.decreaseMoveCount();
-        }
-        // #specialmove castling queenside rook
-        if (p instanceof King && target.getColumn() == source.getColumn() - 2) {
-            Position sourceT = new Position(source.getRow(), source.getColumn() - 4);
-            Position targetT = new Position(source.getRow(), source.getColumn() - 1);
-            ChessPiece rook = (ChessPiece) board.removePiece(targetT);
-            board.placePiece(rook, sourceT);
+        // #specialmove castling
+        if (p instanceof King && Math.abs(target.getColumn() - source.getColumn()) >= 2) {
+            Position sourceT = this.castlingRookSource(source, target);
+            Position targetT = this.castlingRookTarget(source, target);
+            ChessPiece rook = (ChessPiece) this.removePiece(targetT);
             rook.decreaseMoveCount();
+            this.placePiece(rook, sourceT);
         }
 
         // #specialmove en passant
         if (p instanceof Pawn) {
             if (source.getColumn() != target.getColumn() && capturedPiece == enPassantVulnerable) {
 
-                ChessPiece pawn = (ChessPiece) board.removePiece(target);
-                Position pawnPosition;
-                if (p.getColor() == Color.RED)
-                    pawnPosition = new Position(3, target.getColumn());
-                else
-                    pawnPosition = new Position(4, target.getColumn());
-
-                board.placePiece(pawn, pawnPosition);
+                // a plain capture of the same pawn puts it back where it already is
+                ChessPiece pawn = (ChessPiece) this.removePiece(target);
+                int row = (p.getColor() == Color.RED) ? 3 : mailbox.getRows() - 4;
+                this.placePiece(pawn, new Position(row, target.getColumn()));
             }
         }
     }
 
+    private Position castlingRookSource(Position source, Position target) {
+        return new Position(source.getRow(), (target.getColumn() > source.getColumn()) ? mailbox.getColumns() - 1 : 0);
+    }
+
+    private Position castlingRookTarget(Position source, Position target) {
+        return new Position(source.getRow(), target.getColumn() + ((target.getColumn() > source.getColumn()) ? -1 : 1));
+    }
+
+    private Piece removePiece(Position position) {
+        return this.removePiece(position.getRow(), position.getColumn());
+    }
+
+    private ChessPiece removePiece(int row, int column) {
+
+        ChessPiece p = this.mailbox.remove(row, column);
+        if (p != null) {
+            this.evaluation.remove(p, row, column);
+            this.hash ^= Zobrist.piece(p, row, column);
+        }
+
+        return p;
+    }
+
+    private void placePiece(Piece piece, Position position) {
+
+        if (this.piece(position) != null)
+            throw new ChessException("There is already a piece on position " + position);
+
+        this.placePiece((ChessPiece) piece, position.getRow(), position.getColumn());
+    }
+
+    private void placePiece(ChessPiece piece, int row, int column) {
+        this.mailbox.place(piece, row, column);
+        this.evaluation.add(piece, row, column);
+        this.hash ^= Zobrist.piece(piece, row, column);
+    }
+
+    private void setEnPassantVulnerable(ChessPiece piece) {
+
+        // the previous pawn may have been captured already, so its key is kept apart
+        this.hash ^= this.enPassantKey;
+        this.enPassantVulnerable = piece;
+        this.enPassantKey = (piece != null) ? Zobrist.enPassant(piece.column()) : 0L;
+        this.hash ^= this.enPassantKey;
+    }
+
+    public int evaluate() {
+        return this.evaluation.evaluate(this);
+    }
+
+    // pseudo-legal moves of the current player, legality is checked by makeMove(int)
+    public int generateMoves(int[] moves) {
+
+        int count = 0;
+        for (int k = 0; k < piecesOnTheBoard.size(); k++) {
+
+            ChessPiece p = (ChessPiece) piecesOnTheBoard.get(k);
+            if (p.getColor() == currentPlayer)
+                count = this.generateMoves(p, moves, count);
+        }
+
+        return count;
+    }
+
+    // the pseudo-legal moves of a single piece, of either color
+    public int generateMoves(ChessPiece piece, int[] moves) {
+        return this.generateMoves(piece, moves, 0);
+    }
+
+    private int generateMoves(ChessPiece p, int[] moves, int count) {
+        int from = mailbox.index(p.row(), p.column());
+        return MoveRules.of(p.getType()).generate(this, mailbox, p, from, moves, count);
+    }
+
+    // whether move is one of the pseudo-legal moves of the current player, for moves coming from outside;
+    // only the moving piece is asked about the one target square
+    public boolean isPossibleMove(int move) {
+
+        int sourceRow = Move.sourceRow(move);
+        int sourceColumn = Move.sourceColumn(move);
+        int targetRow = Move.targetRow(move);
+        int targetColumn = Move.targetColumn(move);
+        if (sourceRow >= mailbox.getRows() || sourceColumn >= mailbox.getColumns()
+                || targetRow >= mailbox.getRows() || targetColumn >= mailbox.getColumns())
+            return false;
+
+        ChessPiece p = mailbox.get(sourceRow, sourceColumn);
+        if (p == null || p.getColor() != currentPlayer || !this.canMove(p, targetRow, targetColumn))
+            return false;
+
+        // #specialmove promotion, required exactly for pawns reaching the last row
+        boolean lastRow = p instanceof Pawn && (targetRow == 0 || targetRow == mailbox.getRows() - 1);
+        PieceType promotion = Move.promotion(move);
+        if (promotion == null || !lastRow)
+            return promotion == null && !lastRow;
+
+        return this.isPromotionType(promotion);
+    }
+
+    // whether the current player has any legal move, i.e. the game is not over by mate or stalemate;
+    // moves are generated one piece at a time and the search stops at the first legal one
+    public boolean hasLegalMove() {
+
+        int[] moves = this.moveBuffer();
+        ChessPiece[] pieces = this.pieces(currentPlayer);
+        for (ChessPiece p : pieces) {
+
+            int n = this.generateMoves(p, moves, 0);
+            for (int i = 0; i < n; i++)
+                if (this.makeMove(moves[i])) {
+                    this.unmakeMove();
+                    return true;
+                }
+        }
+
+        return false;
+    }
+
+    private int[] moveBuffer() {
+
+        if (moveBuffer == null)
+            moveBuffer = new int[128];
+        return moveBuffer;
+    }
+
+    // a copy, since playing and taking back captures reorders the list
+    private ChessPiece[] pieces(Color color) {
+
+        ChessPiece[] pieces = new ChessPiece[piecesOnTheBoard.size()];
+        int n = 0;
+        for (int i = 0; i < piecesOnTheBoard.size(); i++) {
+            ChessPiece p = (ChessPiece) piecesOnTheBoard.get(i);
+            if (p.getColor() == color)
+                pieces[n++] = p;
+        }
+
+        return Arrays.copyOf(pieces, n);
+    }
+
+    // plays a move for search, returns false and leaves the match untouched if it would leave the king in check
+    public boolean makeMove(int move) {
+
+        Position source = new Position(Move.sourceRow(move), Move.sourceColumn(move));
+        Position target = new Position(Move.targetRow(move), Move.targetColumn(move));
+
+        Undo undo = this.nextUndo(move);
+        Piece capturedPiece = this.makeMove(source, target);
+        if (testCheck(currentPlayer)) {
+            this.undoMove(source, target, capturedPiece);
+            this.hash = undo.hash;
+            return false;
+        }
+
+        undo.capturedPiece = capturedPiece;
+        historySize++;
+
+        ChessPiece movedPiece = this.piece(target);
+
+        // #specialmove promotion
+        if (Move.isPromotion(move)) {
+            this.removePiece(target);
+            piecesOnTheBoard.remove(movedPiece);
+
+            ChessPiece nPiece = newPiece(Move.promotion(move), movedPiece.getColor());
+            this.placePiece(nPiece, target);
+            piecesOnTheBoard.add(nPiece);
+            undo.promotedPawn = movedPiece;
+        }
+
+        // #specialmove en passant
+        if (movedPiece instanceof Pawn && Math.abs(target.getRow() - source.getRow()) == 2)
+            this.setEnPassantVulnerable(movedPiece);
+        else
+            this.setEnPassantVulnerable(null);
+
+        // pawn moves and captures can never be repeated
+        this.halfMoveClock = (movedPiece instanceof Pawn || capturedPiece != null) ? 0 : halfMoveClock + 1;
+
+        this.nextTurn();
+        this.check = testCheck(currentPlayer);
+
+        return true;
+    }
+
+    // the history entry for the move about to be made, it counts once historySize is increased
+    private Undo nextUndo(int move) {
+
+        // matches that are only looked at never allocate a history
+        if (historySize == history.length)
+            history = Arrays.copyOf(history, Math.max(64, history.length * 2));
+        if (history[historySize] == null)
+            history[historySize] = new Undo();
+
+        Undo undo = history[historySize];
+        undo.move = move;
+        undo.enPassantVulnerable = enPassantVulnerable;
+        undo.enPassantKey = enPassantKey;
+        undo.check = check;
+        undo.hash = hash;
+        undo.halfMoveClock = halfMoveClock;
+        undo.promotedPawn = null;
+        return undo;
+    }
+
+    // how many times the current position occurred before, only looking back to the last pawn move or capture
+    public int repetitionCount() {
+
+        int count = 0;
+        int limit = Math.max(0, historySize - halfMoveClock);
+        for (int i = historySize - 2; i >= limit; i -= 2)
+            if (history[i].hash == hash)
+                count++;
+
+        return count;
+    }
+
+    public void unmakeMove() {
+
+        if (historySize == 0 || history[historySize - 1].move == Move.NONE)
+            throw new IllegalStateException("There is no move to be undone");
+
+        Undo undo = history[--historySize];
+        Position source = new Position(Move.sourceRow(undo.move), Move.sourceColumn(undo.move));
+        Position target = new Position(Move.targetRow(undo.move), Move.targetColumn(undo.move));
+
+        // a mate played through performChessMove leaves the turn with the winner
+        if (checkMate)
+            this.checkMate = false;
+        else
+            this.previousTurn();
+
+        if (undo.promotedPawn != null) {
+            Piece p = this.removePiece(target);
+            piecesOnTheBoard.remove(p);
+            this.placePiece(undo.promotedPawn, target);
+            piecesOnTheBoard.add(undo.promotedPawn);
+        }
+
+        this.enPassantVulnerable = undo.enPassantVulnerable;
+        this.enPassantKey = undo.enPassantKey;
+        this.undoMove(source, target, undo.capturedPiece);
+
+        this.check = undo.check;
+        this.hash = undo.hash;
+        this.halfMoveClock = undo.halfMoveClock;
+        undo.capturedPiece = null;
+        undo.promotedPawn = null;
+    }
+
     private Color opponent(Color color) {
 
         return (color == Color.RED) ? Color.BLUE : Color.RED;
@@ -231,100 +763,251 @@ public class ChessMatch {
 
     private ChessPiece king(Color color) {
 
-        List<Piece> list = this.piecesOnTheBoard.stream().filter(x -> ((ChessPiece) x).getColor() == color).collect(Collectors.toList());
-        for (Piece p : list) {
-            if (p instanceof King) {
-                return (ChessPiece) p;
+        for (int i = 0; i < this.piecesOnTheBoard.size(); i++) {
+            ChessPiece p = (ChessPiece) this.piecesOnTheBoard.get(i);
+            if (p instanceof King && p.getColor() == color) {
+                return p;
             }
         }
         throw new IllegalStateException("There is no " + color + " king on the board");
     }
 
     private boolean testCheck(Color color) {
+        Metrics.testCheck();
 
-        Position kingPosition = this.king(color).getChessPosition().toPosition();
-        List<Piece> opponentPieces = this.piecesOnTheBoard.stream().filter(x -> ((ChessPiece) x).getColor() == this.opponent(color)).collect(Collectors.toList());
+        ChessPiece king = this.king(color);
+        return this.isAttacked(king.row(), king.column(), this.opponent(color));
+    }
 
-        for (Piece p : opponentPieces) {
+    public boolean isAttacked(int row, int column, Color by) {
+        return this.attackers(row, column, by, null, null) > 0;
+    }
 
-            boolean[][] matrix = p.possibleMoves();
-            if (matrix[kingPosition.getRow()][kingPosition.getColumn()])
-                return true;
+    // collects in squares (as Move.square) the pieces of color attacking row/column, treating the squares
+    // flagged in removed as empty; with a null squares array it stops at the first attacker found
+    public int attackers(int row, int column, Color color, boolean[] removed, int[] squares) {
+
+        int count = 0;
+        int target = mailbox.index(row, column);
+
+        // pawns attack from the row behind, seen from their direction of travel
+        int behind = (color == Color.RED) ? -mailbox.up() : mailbox.up();
+        for (int side = -1; side <= 1; side += 2) {
+            ChessPiece p = this.pieceAt(target + behind + side, color, removed);
+            if (p != null && p.getType() == PieceType.PAWN) {
+                if (squares == null)
+                    return 1;
+                squares[count++] = mailbox.square(target + behind + side);
+            }
         }
 
-        return false;
+        for (int step : mailbox.knightSteps) {
+            ChessPiece p = this.pieceAt(target + step, color, removed);
+            if (p != null && (p.getType() == PieceType.KNIGHT || p.getType() == PieceType.ARCHBISHOP || p.getType() == PieceType.CHANCELLOR)) {
+                if (squares == null)
+                    return 1;
+                squares[count++] = mailbox.square(target + step);
+            }
+        }
+
+        for (int step : mailbox.kingSteps) {
+            ChessPiece p = this.pieceAt(target + step, color, removed);
+            if (p != null && p.getType() == PieceType.KING) {
+                if (squares == null)
+                    return 1;
+                squares[count++] = mailbox.square(target + step);
+            }
+        }
+
+        for (int i = 0; i < 2; i++) {
+
+            boolean diagonal = i == 0;
+            for (int step : diagonal ? mailbox.diagonalSteps : mailbox.orthogonalSteps)
+                for (int index = target + step; !mailbox.isOffBoard(index); index += step) {
+
+                    ChessPiece p = mailbox.get(index);
+                    if (p == null || (removed != null && removed[mailbox.square(index)]))
+                        continue;
+
+                    PieceType type = p.getType();
+                    if (p.getColor() == color && (type == PieceType.QUEEN || (diagonal
+                            ? type == PieceType.BISHOP || type == PieceType.ARCHBISHOP
+                            : type == PieceType.ROOK || type == PieceType.CHANCELLOR))) {
+                        if (squares == null)
+                            return 1;
+                        squares[count++] = mailbox.square(index);
+                    }
+                    break;
+                }
+        }
+
+        return count;
+    }
+
+    private ChessPiece pieceAt(int index, Color color, boolean[] removed) {
+
+        if (mailbox.isOffBoard(index))
+            return null;
+
+        ChessPiece p = mailbox.get(index);
+        if (p == null || p.getColor() != color || (removed != null && removed[mailbox.square(index)]))
+            return null;
+
+        return p;
     }
 
     private boolean testCheckMate(Color color) {
+
+        CheckMateEvent event = new CheckMateEvent();
+        event.begin();
+        boolean checkMate = this.isCheckMate(color);
+
+        if (event.shouldCommit()) {
+            event.matchId = id;
+            event.ply = turn;
+            event.color = color.name();
+            event.checkMate = checkMate;
+            event.commit();
+        }
+        return checkMate;
+    }
+
+    private boolean isCheckMate(Color color) {
+        Metrics.testCheckMate();
         if (!testCheck(color))
             return false;
 
-        List<Piece> list = this.piecesOnTheBoard.stream().filter(x -> ((ChessPiece) x).getColor() == color).collect(Collectors.toList());
-        for (Piece p : list) {
-
-            boolean[][] matrix = p.possibleMoves();
-            for (int i = 0; i < board.getRows(); i++)
-                for (int j = 0; j < board.getColumns(); j++)
-                    if (matrix[i][j]) {
-                        Position source = ((ChessPiece) p).getChessPosition().toPosition();
-                        Position target = new Position(i, j);
-                        Piece capturedPiece = makeMove(source, target);
-                        boolean tCheck = testCheck(color);
-                        undoMove(source, target, capturedPiece);
-                        if (!tCheck)
-                            return false;
-
-                    }
+        int[] moves = this.moveBuffer();
+        for (ChessPiece p : this.pieces(color)) {
+
+            int n = this.generateMoves(p, moves, 0);
+            for (int i = 0; i < n; i++) {
+                Position source = new Position(Move.sourceRow(moves[i]), Move.sourceColumn(moves[i]));
+                Position target = new Position(Move.targetRow(moves[i]), Move.targetColumn(moves[i]));
+                Piece capturedPiece = makeMove(source, target);
+                boolean tCheck = testCheck(color);
+                undoMove(source, target, capturedPiece);
+                if (!tCheck)
+                    return false;
+            }
         }
 
         return true;
     }
 
-    private void planeNewPiece(char column, int row, ChessPiece piece) {
-        board.placePiece(piece, new ChessPosition(column, row).toPosition());
+    void placeNewPiece(PieceType type, Color color, int row, int column, boolean moved) {
+
+        if (this.piece(row, column) != null)
+            throw new ChessException("There is already a piece on position " + new Position(row, column));
+
+        ChessPiece piece = this.sparePiece(type, color);
+        piece.setMoveCount(moved ? 1 : 0);
+
+        this.placePiece(piece, row, column);
         this.piecesOnTheBoard.add(piece);
     }
 
+    // a piece left by clear when one of the type and color is there, so refilling a match
+    // allocates nothing once it has held the same material before
+    private ChessPiece sparePiece(PieceType type, Color color) {
+
+        if (spares != null)
+            for (int i = spares.size() - 1; i >= 0; i--) {
+                ChessPiece p = spares.get(i);
+                if (p.getType() == type && p.getColor() == color) {
+                    spares.set(i, spares.get(spares.size() - 1));
+                    spares.remove(spares.size() - 1);
+                    return p;
+                }
+            }
+
+        return newPiece(type, color);
+    }
+
+    // empties the board so the match can be filled in again without allocating a new one
+    void clear() {
+
+        if (spares == null)
+            spares = new ArrayList<>();
+
+        for (int i = piecesOnTheBoard.size() - 1; i >= 0; i--) {
+            ChessPiece p = (ChessPiece) piecesOnTheBoard.get(i);
+            this.removePiece(p.row(), p.column());
+            spares.add(p);
+        }
+        for (int i = 0; i < capturedPieces.size(); i++)
+            spares.add((ChessPiece) capturedPieces.get(i));
+
+        this.piecesOnTheBoard.clear();
+        this.capturedPieces.clear();
+        for (int i = 0; i < historySize; i++) {
+            history[i].capturedPiece = null;
+            history[i].promotedPawn = null;
+        }
+        this.historySize = 0;
+
+        this.setEnPassantVulnerable(null);
+        if (this.currentPlayer != Color.RED)
+            this.hash ^= Zobrist.side(Color.BLUE);
+
+        this.currentPlayer = Color.RED;
+        this.turn = 1;
+        this.check = false;
+        this.checkMate = false;
+        this.promoted = null;
+        this.halfMoveClock = 0;
+    }
+
+    void setState(Color currentPlayer, int turn, ChessPiece enPassantVulnerable, int halfMoveClock) {
+        this.setState(currentPlayer, turn, enPassantVulnerable, halfMoveClock, false, false);
+        this.check = testCheck(currentPlayer);
+        this.checkMate = testCheckMate(currentPlayer);
+    }
+
+    // for a position whose check and mate flags are already known, as in a PositionArena record
+    void setState(Color currentPlayer, int turn, ChessPiece enPassantVulnerable, int halfMoveClock,
+            boolean check, boolean checkMate) {
+
+        this.halfMoveClock = halfMoveClock;
+        if (this.currentPlayer != currentPlayer)
+            this.hash ^= Zobrist.side(Color.BLUE);
+
+        this.currentPlayer = currentPlayer;
+        this.turn = turn;
+        this.setEnPassantVulnerable(enPassantVulnerable);
+        this.check = check;
+        this.checkMate = checkMate;
+    }
+
     private void nextTurn() {
         this.turn++;
         this.currentPlayer = (currentPlayer == Color.RED) ? Color.BLUE : Color.RED;
+        this.hash ^= Zobrist.side(Color.BLUE);
     }
 
-    private void initialSetup() {
-        this.planeNewPiece('a', 1, new Rook(this.board, Color.RED));
-        this.planeNewPiece('b', 1, new Knight(this.board, Color.RED));
-        this.planeNewPiece('c', 1, new Bishop(this.board, Color.RED));
-        this.planeNewPiece('d', 1, new Queen(this.board, Color.RED));
-        this.planeNewPiece('e', 1, new King(this.board, Color.RED, this));
-        this.planeNewPiece('f', 1, new Bishop(this.board, Color.RED));
-        this.planeNewPiece('g', 1, new Knight(this.board, Color.RED));
-        this.planeNewPiece('h', 1, new Rook(this.board, Color.RED));
-        this.planeNewPiece('a', 2, new Pawn(this.board, Color.RED, this));
-        this.planeNewPiece('b', 2, new Pawn(this.board, Color.RED, this));
-        this.planeNewPiece('c', 2, new Pawn(this.board, Color.RED, this));
-        this.planeNewPiece('d', 2, new Pawn(this.board, Color.RED, this));
-        this.planeNewPiece('e', 2, new Pawn(this.board, Color.RED, this));
-        this.planeNewPiece('f', 2, new Pawn(this.board, Color.RED, this));
-        this.planeNewPiece('g', 2, new Pawn(this.board, Color.RED, this));
-        this.planeNewPiece('h', 2, new Pawn(this.board, Color.RED, this));
-
-        this.planeNewPiece('a', 8, new Rook(this.board, Color.BLUE));
-        this.planeNewPiece('b', 8, new Knight(this.board, Color.BLUE));
-        this.planeNewPiece('c', 8, new Bishop(this.board, Color.BLUE));
-        this.planeNewPiece('d', 8, new Queen(this.board, Color.BLUE));
-        this.planeNewPiece('e', 8, new King(this.board, Color.BLUE, this));
-        this.planeNewPiece('f', 8, new Bishop(this.board, Color.BLUE));
-        this.planeNewPiece('g', 8, new Knight(this.board, Color.BLUE));
-        this.planeNewPiece('h', 8, new Rook(this.board, Color.BLUE));
-        this.planeNewPiece('a', 7, new Pawn(this.board, Color.BLUE, this));
-        this.planeNewPiece('b', 7, new Pawn(this.board, Color.BLUE, this));
-        this.planeNewPiece('c', 7, new Pawn(this.board, Color.BLUE, this));
-        this.planeNewPiece('d', 7, new Pawn(this.board, Color.BLUE, this));
-        this.planeNewPiece('e', 7, new Pawn(this.board, Color.BLUE, this));
-        this.planeNewPiece('f', 7, new Pawn(this.board, Color.BLUE, this));
-        this.planeNewPiece('g', 7, new Pawn(this.board, Color.BLUE, this));
-        this.planeNewPiece('h', 7, new Pawn(this.board, Color.BLUE, this));
+    private void previousTurn() {
+        this.turn--;
+        this.currentPlayer = (currentPlayer == Color.RED) ? Color.BLUE : Color.RED;
+        this.hash ^= Zobrist.side(Color.BLUE);
+    }
+
+    private void initialSetup(Variant variant) {
+
+        String backRank = variant.getBackRank();
+        int rows = mailbox.getRows();
+
+        for (int column = 0; column < mailbox.getColumns(); column++) {
 
+            PieceType type = PieceType.fromLetter(backRank.charAt(column));
+            this.placeNewPiece(type, Color.RED, rows - 1, column, false);
+            this.placeNewPiece(PieceType.PAWN, Color.RED, rows - 2, column, false);
+            this.placeNewPiece(type, Color.BLUE, 0, column, false);
+            this.placeNewPiece(PieceType.PAWN, Color.BLUE, 1, column, false);
+        }
+    }
+
+    public long getId() {
+        return id;
     }
 
     public int getTurn() {
@@ -335,12 +1018,52 @@ public class ChessMatch {
         return currentPlayer;
     }
 
+    public List<Piece> getPiecesOnTheBoard() {
+        return piecesOnTheBoardView;
+    }
+
+    public Evaluation getEvaluation() {
+        return evaluation;
+    }
+
+    // evaluate() uses the network from now on, or the hand-written terms again when it is null
+    public void setNetwork(Network network) {
+        this.evaluation.setNetwork(network, piecesOnTheBoard);
+    }
+
+    public ChessPiece piece(int row, int column) {
+
+        if (!mailbox.exists(row, column))
+            throw new ChessException("Position not on the board");
+        return mailbox.get(row, column);
+    }
+
+    private ChessPiece piece(Position position) {
+        return this.piece(position.getRow(), position.getColumn());
+    }
+
+    public int getRows() {
+        return mailbox.getRows();
+    }
+
+    public int getColumns() {
+        return mailbox.getColumns();
+    }
+
+    public int getHalfMoveClock() {
+        return halfMoveClock;
+    }
+
+    public long getHash() {
+        return hash;
+    }
+
     public ChessPiece[][] getPieces() {
 
-        ChessPiece[][] matriz = new ChessPiece[this.board.getRows()][this.board.getColumns()];
-        for (int i = 0; i < board.getRows(); i++)
-            for (int j = 0; j < board.getColumns(); j++)
-                matriz[i][j] = (ChessPiece) this.board.piece(i, j);
+        ChessPiece[][] matriz = new ChessPiece[this.mailbox.getRows()][this.mailbox.getColumns()];
+        for (int i = 0; i < mailbox.getRows(); i++)
+            for (int j = 0; j < mailbox.getColumns(); j++)
+                matriz[i][j] = mailbox.get(i, j);
 
         return matriz;
     }
@@ -360,4 +1083,16 @@ public class ChessMatch {
     public ChessPiece getPromoted() {
         return promoted;
     }
+
+    private static class Undo {
+
+        private int move;
+        private Piece capturedPiece;
+        private ChessPiece enPassantVulnerable;
+        private ChessPiece promotedPawn;
+        private boolean check;
+        private long hash;
+        private long enPassantKey;
+        private int halfMoveClock;
+    }
 }
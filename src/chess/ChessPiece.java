@@ -2,18 +2,25 @@ package chess;
 
 import boardgame.Board;
 import boardgame.Piece;
-import boardgame.Position;
 
+// a piece only knows its type, color, move count and square; how it moves is decided by the
+// MoveRules of its type from the state of the match it stands in
 public abstract class ChessPiece extends Piece {
 
     private Color color;
     private int moveCount;
 
+    public ChessPiece(Color color) {
+        this.color = color;
+    }
+
     public ChessPiece(Board board, Color color) {
         super(board);
         this.color = color;
     }
 
+    public abstract PieceType getType();
+
     public Color getColor() {
         return color;
     }
@@ -30,12 +37,46 @@ public abstract class ChessPiece extends Piece {
         return this.moveCount;
     }
 
-    protected boolean isThereOpponentPiece(Position position) {
-        ChessPiece p = (ChessPiece) getBoard().piece(position);
-        return (p != null && p.getColor() != color);
+    void setMoveCount(int moveCount) {
+        this.moveCount = moveCount;
+    }
+
+    int row() {
+        return row;
+    }
+
+    int column() {
+        return column;
+    }
+
+    // the squares the piece can reach in the match it stands in, checks aside, as the piece classes
+    // answered it before their rules moved into MoveRules
+    @Override
+    public boolean[][] possibleMoves() {
+        return this.match().possibleMoves(this);
+    }
+
+    @Override
+    public boolean isThereAnyPossibleMove() {
+
+        Mailbox mailbox = (Mailbox) board;
+        return MoveRules.of(this.getType()).hasMove(this.match(), mailbox, this, mailbox.index(row, column));
+    }
+
+    private ChessMatch match() {
+
+        if (!(board instanceof Mailbox) || row < 0)
+            throw new ChessException("The piece is not on a chess board");
+        return ((Mailbox) board).getMatch();
+    }
+
+    void setBoard(Mailbox mailbox) {
+        this.board = mailbox;
     }
 
-    public ChessPosition getChessPosition() {
-        return ChessPosition.fromPosition(position);
+    // row -1 takes the piece off the board
+    void moveTo(int row, int column) {
+        this.row = row;
+        this.column = column;
     }
 }
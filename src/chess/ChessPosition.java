@@ -4,24 +4,28 @@ import boardgame.Position;
 
 public class ChessPosition {
 
+    // the largest board a square can name, see Move
+    public static final int MAX_SIZE = 16;
+
     private char column;
     private int row;
 
     public ChessPosition(char column, int row) {
 
-        if (column < 'a' || column > 'h' || row < 1 || row > 8)
-            throw new ChessException("Error instantiating ChessPosition. Valid values are from a1 to h8");
+        if (column < 'a' || column >= 'a' + MAX_SIZE || row < 1 || row > MAX_SIZE)
+            throw new ChessException("Error instantiating ChessPosition. Valid values are from a1 to p16");
 
         this.column = column;
         this.row = row;
     }
 
-    protected Position toPosition() {
-        return new Position(8 - this.row, this.column - 'a');
+    // ranks are counted from the bottom of a board with the given number of rows
+    protected Position toPosition(int rows) {
+        return new Position(rows - this.row, this.column - 'a');
     }
 
-    protected static ChessPosition fromPosition(Position position) {
-        return new ChessPosition((char) ('a' + position.getColumn()), 8 - position.getRow());
+    protected static ChessPosition fromPosition(Position position, int rows) {
+        return new ChessPosition((char) ('a' + position.getColumn()), rows - position.getRow());
     }
 
     @Override
@@ -0,0 +1,254 @@
+package chess;
+
+import boardgame.Position;
+
+public final class Fen {
+
+    public static final String START_POSITION = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    private Fen() {
+    }
+
+    // upper case letters and "w" are RED, lower case letters and "b" are BLUE; the board takes the
+    // size of the placement field, "a" and "c" being the archbishop and chancellor of larger variants
+    public static ChessMatch parse(String fen) {
+
+        String placement = fen.trim().split("\\s+")[0];
+        String[] ranks = placement.split("/");
+        return load(new ChessMatch(ranks.length, width(ranks[0])), fen);
+    }
+
+    // replaces the position of an existing match of the same size, which is left empty if the FEN is invalid
+    public static ChessMatch load(ChessMatch chessMatch, String fen) {
+
+        chessMatch.clear();
+        try {
+            fill(chessMatch, fen);
+        } catch (RuntimeException e) {
+            chessMatch.clear();
+            throw e;
+        }
+
+        return chessMatch;
+    }
+
+    private static void fill(ChessMatch chessMatch, String fen) {
+
+        String[] fields = fen.trim().split("\\s+");
+        if (fields.length < 2)
+            throw new ChessException("Invalid FEN: " + fen);
+
+        int rows = chessMatch.getRows();
+        int columns = chessMatch.getColumns();
+
+        String[] ranks = fields[0].split("/");
+        if (ranks.length != rows)
+            throw new ChessException("Invalid FEN: expected " + rows + " ranks in " + fields[0]);
+
+        String castling = (fields.length > 2) ? fields[2] : "-";
+        int redKings = 0;
+        int blueKings = 0;
+
+        for (int row = 0; row < rows; row++) {
+
+            int column = 0;
+            for (int i = 0; i < ranks[row].length(); i++) {
+
+                char c = ranks[row].charAt(i);
+                if (c >= '0' && c <= '9') {
+                    // empty squares, up to two digits on wide boards
+                    int empty = c - '0';
+                    if (i + 1 < ranks[row].length() && Character.isDigit(ranks[row].charAt(i + 1)))
+                        empty = empty * 10 + ranks[row].charAt(++i) - '0';
+                    column += empty;
+                    continue;
+                }
+
+                PieceType type = PieceType.fromLetter(c);
+                if (type == null || column >= columns)
+                    throw new ChessException("Invalid FEN: unexpected '" + c + "' in " + ranks[row]);
+
+                Color color = Character.isUpperCase(c) ? Color.RED : Color.BLUE;
+                if (type == PieceType.KING && color == Color.RED)
+                    redKings++;
+                else if (type == PieceType.KING)
+                    blueKings++;
+
+                chessMatch.placeNewPiece(type, color, row, column, moved(type, color, row, column, rows, columns, castling));
+                column++;
+            }
+
+            if (column != columns)
+                throw new ChessException("Invalid FEN: rank " + ranks[row] + " does not have " + columns + " squares");
+        }
+
+        if (redKings != 1 || blueKings != 1)
+            throw new ChessException("Invalid FEN: each side needs exactly one king");
+
+        Color currentPlayer;
+        if (fields[1].equals("w"))
+            currentPlayer = Color.RED;
+        else if (fields[1].equals("b"))
+            currentPlayer = Color.BLUE;
+        else
+            throw new ChessException("Invalid FEN: unknown side to move " + fields[1]);
+
+        // the vulnerable pawn stands in front of the en passant square
+        ChessPiece enPassantVulnerable = null;
+        if (fields.length > 3 && !fields[3].equals("-")) {
+
+            ChessPosition square = parseSquare(fields[3]);
+            Position pawn = square.toPosition(rows);
+            if (pawn.getRow() < 1 || pawn.getRow() >= rows - 1 || pawn.getColumn() >= columns)
+                throw new ChessException("Invalid FEN: en passant square " + fields[3] + " is not on the board");
+            pawn.setRow(pawn.getRow() + ((currentPlayer == Color.RED) ? 1 : -1));
+            enPassantVulnerable = chessMatch.piece(pawn.getRow(), pawn.getColumn());
+            if (enPassantVulnerable == null || enPassantVulnerable.getType() != PieceType.PAWN)
+                throw new ChessException("Invalid FEN: no pawn to capture en passant on " + fields[3]);
+        }
+
+        int halfMoveClock = 0;
+        int fullMove = 1;
+        try {
+            if (fields.length > 4)
+                halfMoveClock = Math.max(0, Integer.parseInt(fields[4]));
+            if (fields.length > 5)
+                fullMove = Math.max(1, Integer.parseInt(fields[5]));
+        } catch (NumberFormatException e) {
+            throw new ChessException("Invalid FEN: bad move counters in " + fen);
+        }
+
+        int turn = 2 * (fullMove - 1) + ((currentPlayer == Color.RED) ? 1 : 2);
+        chessMatch.setState(currentPlayer, turn, enPassantVulnerable, halfMoveClock);
+    }
+
+    public static String toFen(ChessMatch chessMatch) {
+
+        int rows = chessMatch.getRows();
+        int columns = chessMatch.getColumns();
+
+        StringBuilder sb = new StringBuilder(90);
+        for (int row = 0; row < rows; row++) {
+
+            int empty = 0;
+            for (int column = 0; column < columns; column++) {
+
+                ChessPiece p = chessMatch.piece(row, column);
+                if (p == null) {
+                    empty++;
+                    continue;
+                }
+
+                if (empty > 0) {
+                    sb.append(empty);
+                    empty = 0;
+                }
+
+                char c = p.getType().getLetter();
+                sb.append((p.getColor() == Color.RED) ? Character.toUpperCase(c) : c);
+            }
+
+            if (empty > 0)
+                sb.append(empty);
+            if (row < rows - 1)
+                sb.append('/');
+        }
+
+        sb.append(chessMatch.getCurrentPlayer() == Color.RED ? " w " : " b ");
+
+        int length = sb.length();
+        if (canCastle(chessMatch, Color.RED, columns - 1))
+            sb.append('K');
+        if (canCastle(chessMatch, Color.RED, 0))
+            sb.append('Q');
+        if (canCastle(chessMatch, Color.BLUE, columns - 1))
+            sb.append('k');
+        if (canCastle(chessMatch, Color.BLUE, 0))
+            sb.append('q');
+        if (sb.length() == length)
+            sb.append('-');
+
+        sb.append(' ');
+        ChessPiece ep = chessMatch.getEnPassantVulnerable();
+        if (ep != null && ep.getType() == PieceType.PAWN && ep.getPosition() != null && ep.getColor() != chessMatch.getCurrentPlayer()) {
+            Position p = ep.getPosition();
+            int behind = p.getRow() + ((ep.getColor() == Color.RED) ? 1 : -1);
+            sb.append(ChessPosition.fromPosition(new Position(behind, p.getColumn()), rows));
+        } else
+            sb.append('-');
+
+        sb.append(' ').append(chessMatch.getHalfMoveClock()).append(' ').append((chessMatch.getTurn() + 1) / 2);
+        return sb.toString();
+    }
+
+    public static ChessPosition parseSquare(String s) {
+
+        int rank = 0;
+        for (int i = 1; i < s.length(); i++) {
+            if (!Character.isDigit(s.charAt(i)) || i > 2)
+                throw new ChessException("Invalid square: " + s);
+            rank = rank * 10 + s.charAt(i) - '0';
+        }
+
+        if (s.length() < 2 || s.charAt(0) < 'a' || s.charAt(0) >= 'a' + ChessPosition.MAX_SIZE || rank < 1 || rank > ChessPosition.MAX_SIZE)
+            throw new ChessException("Invalid square: " + s);
+
+        return new ChessPosition(s.charAt(0), rank);
+    }
+
+    // squares in a rank of the placement field
+    private static int width(String rank) {
+
+        int width = 0;
+        for (int i = 0; i < rank.length(); i++) {
+            char c = rank.charAt(i);
+            if (!Character.isDigit(c))
+                width++;
+            else if (i + 1 < rank.length() && Character.isDigit(rank.charAt(i + 1)))
+                width += (c - '0') * 10 + rank.charAt(++i) - '0';
+            else
+                width += c - '0';
+        }
+
+        return width;
+    }
+
+    // kings and rooks that may still castle, and pawns on their starting rank, keep a zero move count
+    private static boolean moved(PieceType type, Color color, int row, int column, int rows, int columns, String castling) {
+
+        int homeRow = (color == Color.RED) ? rows - 1 : 0;
+        if (type == PieceType.PAWN)
+            return row != ((color == Color.RED) ? rows - 2 : 1);
+
+        if (type == PieceType.KING)
+            return row != homeRow || (castling.indexOf(letter(color, 'k')) < 0 && castling.indexOf(letter(color, 'q')) < 0);
+
+        if (type == PieceType.ROOK && row == homeRow && column == columns - 1)
+            return castling.indexOf(letter(color, 'k')) < 0;
+
+        if (type == PieceType.ROOK && row == homeRow && column == 0)
+            return castling.indexOf(letter(color, 'q')) < 0;
+
+        return type == PieceType.ROOK;
+    }
+
+    private static char letter(Color color, char c) {
+        return (color == Color.RED) ? Character.toUpperCase(c) : c;
+    }
+
+    private static boolean canCastle(ChessMatch chessMatch, Color color, int rookColumn) {
+
+        int row = (color == Color.RED) ? chessMatch.getRows() - 1 : 0;
+        ChessPiece rook = chessMatch.piece(row, rookColumn);
+        if (rook == null || rook.getType() != PieceType.ROOK || rook.getColor() != color || rook.getMoveCount() != 0)
+            return false;
+
+        for (int column = 0; column < chessMatch.getColumns(); column++) {
+            ChessPiece king = chessMatch.piece(row, column);
+            if (king != null && king.getType() == PieceType.KING && king.getColor() == color)
+                return king.getMoveCount() == 0;
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,159 @@
+package chess;
+
+import boardgame.Board;
+import boardgame.BoardException;
+import boardgame.Piece;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// the pieces of a match on a one-dimensional board with a two square border around it, so leaper
+// jumps and slider rays only test the target square instead of checking rows and columns; it
+// costs the same per square on any board size, unlike building boolean[rows][columns]; as a
+// boardgame.Board it is the board the match's pieces report
+final class Mailbox extends Board {
+
+    private static final int BORDER = 2;
+
+    // everything but the pieces depends on the board size alone and is shared by its matches
+    private static final Map<Integer, Layout> LAYOUTS = new ConcurrentHashMap<>();
+
+    private final int stride;
+    private final ChessMatch chessMatch;
+
+    private final ChessPiece[] pieces;
+    private final boolean[] offBoard;
+    private final int[] squares;
+
+    final int[] knightSteps;
+    final int[] kingSteps;
+    final int[] diagonalSteps;
+    final int[] orthogonalSteps;
+
+    Mailbox(int rows, int columns, ChessMatch chessMatch) {
+
+        super(rows, columns);
+        Layout layout = LAYOUTS.computeIfAbsent(rows << 8 | columns, size -> new Layout(rows, columns));
+        this.chessMatch = chessMatch;
+        this.stride = layout.stride;
+        this.pieces = new ChessPiece[layout.offBoard.length];
+        this.offBoard = layout.offBoard;
+        this.squares = layout.squares;
+        this.knightSteps = layout.knightSteps;
+        this.kingSteps = layout.kingSteps;
+        this.diagonalSteps = layout.diagonalSteps;
+        this.orthogonalSteps = layout.orthogonalSteps;
+    }
+
+    int index(int row, int column) {
+        return (row + BORDER) * stride + column + BORDER;
+    }
+
+    int row(int index) {
+        return index / stride - BORDER;
+    }
+
+    int column(int index) {
+        return index % stride - BORDER;
+    }
+
+    // one row towards the top of the board (BLUE's side)
+    int up() {
+        return -stride;
+    }
+
+    // the Move.square of an index on the board
+    int square(int index) {
+        return squares[index];
+    }
+
+    ChessPiece get(int index) {
+        return pieces[index];
+    }
+
+    boolean isOffBoard(int index) {
+        return offBoard[index];
+    }
+
+    ChessPiece get(int row, int column) {
+        return pieces[this.index(row, column)];
+    }
+
+    boolean exists(int row, int column) {
+        return this.positionExists(row, column);
+    }
+
+    void place(ChessPiece piece, int row, int column) {
+        pieces[this.index(row, column)] = piece;
+        piece.moveTo(row, column);
+    }
+
+    ChessPiece remove(int row, int column) {
+
+        int index = this.index(row, column);
+        ChessPiece p = pieces[index];
+        if (p != null) {
+            pieces[index] = null;
+            p.moveTo(-1, 0);
+        }
+
+        return p;
+    }
+
+    ChessMatch getMatch() {
+        return chessMatch;
+    }
+
+    @Override
+    protected Piece pieceAt(int row, int column) {
+        return this.get(row, column);
+    }
+
+    @Override
+    protected void putPieceAt(int row, int column, Piece piece) {
+
+        if (piece != null && !(piece instanceof ChessPiece))
+            throw new BoardException("Only chess pieces go on a chess board");
+        pieces[this.index(row, column)] = (ChessPiece) piece;
+    }
+
+    private static final class Layout {
+
+        private final int stride;
+        private final boolean[] offBoard;
+        private final int[] squares;
+
+        private final int[] knightSteps;
+        private final int[] kingSteps;
+        private final int[] diagonalSteps;
+        private final int[] orthogonalSteps;
+
+        Layout(int rows, int columns) {
+
+            this.stride = columns + 2 * BORDER;
+            this.offBoard = new boolean[(rows + 2 * BORDER) * stride];
+            this.squares = new int[offBoard.length];
+
+            for (int i = 0; i < offBoard.length; i++) {
+                int r = i / stride - BORDER;
+                int c = i % stride - BORDER;
+                offBoard[i] = r < 0 || r >= rows || c < 0 || c >= columns;
+                squares[i] = offBoard[i] ? -1 : Move.square(r, c);
+            }
+
+            this.knightSteps = this.steps(new int[][]{{-1, -2}, {-1, 2}, {-2, 1}, {-2, -1}, {1, -2}, {1, 2}, {2, 1}, {2, -1}});
+            this.kingSteps = this.steps(new int[][]{{-1, 0}, {1, 0}, {0, -1}, {0, 1}, {-1, -1}, {-1, 1}, {1, -1}, {1, 1}});
+            this.diagonalSteps = this.steps(new int[][]{{-1, -1}, {-1, 1}, {1, -1}, {1, 1}});
+            this.orthogonalSteps = this.steps(new int[][]{{-1, 0}, {1, 0}, {0, -1}, {0, 1}});
+        }
+
+        private int[] steps(int[][] offsets) {
+
+            int[] steps = new int[offsets.length];
+            for (int i = 0; i < offsets.length; i++)
+                steps[i] = offsets[i][0] * stride + offsets[i][1];
+
+            return steps;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package chess;
+
+public final class Move {
+
+    // a move is packed in an int: source square in bits 0-7, target square in bits 8-15
+    // and the promotion piece type (ordinal + 1, zero for none) in bits 16-19.
+    // A square is row << 4 | column, so boards up to 16x16 fit.
+    public static final int NONE = 0;
+
+    private static final PieceType[] TYPES = PieceType.values();
+
+    private Move() {
+    }
+
+    public static int of(int sourceRow, int sourceColumn, int targetRow, int targetColumn) {
+        return square(sourceRow, sourceColumn) | square(targetRow, targetColumn) << 8;
+    }
+
+    public static int of(int sourceRow, int sourceColumn, int targetRow, int targetColumn, PieceType promotion) {
+        return of(sourceRow, sourceColumn, targetRow, targetColumn) | (promotion.ordinal() + 1) << 16;
+    }
+
+    // the move between two squares as the UI reads them, promotion may be null; both squares
+    // must be on a board of the given size, the packed fields cannot hold anything else
+    public static int of(ChessPosition source, ChessPosition target, int rows, int columns, PieceType promotion) {
+
+        checkOnBoard(source, rows, columns);
+        checkOnBoard(target, rows, columns);
+
+        int move = of(rows - source.getRow(), source.getColumn() - 'a', rows - target.getRow(), target.getColumn() - 'a');
+        return (promotion == null) ? move : move | (promotion.ordinal() + 1) << 16;
+    }
+
+    private static void checkOnBoard(ChessPosition position, int rows, int columns) {
+
+        if (position.getRow() > rows || position.getColumn() - 'a' >= columns)
+            throw new ChessException("Position " + position + " is not on the board");
+    }
+
+    public static int square(int row, int column) {
+        return row << 4 | column;
+    }
+
+    public static int row(int square) {
+        return square >>> 4;
+    }
+
+    public static int column(int square) {
+        return square & 0xF;
+    }
+
+    public static int source(int move) {
+        return move & 0xFF;
+    }
+
+    public static int target(int move) {
+        return (move >>> 8) & 0xFF;
+    }
+
+    public static int sourceRow(int move) {
+        return (move >>> 4) & 0xF;
+    }
+
+    public static int sourceColumn(int move) {
+        return move & 0xF;
+    }
+
+    public static int targetRow(int move) {
+        return (move >>> 12) & 0xF;
+    }
+
+    public static int targetColumn(int move) {
+        return (move >>> 8) & 0xF;
+    }
+
+    // coordinate notation such as e2e4 or e7e8q, ranks counted from the bottom of a board with the given rows
+    public static String toString(int move, int rows) {
+        return append(new StringBuilder(6), move, rows).toString();
+    }
+
+    // the same text appended without an intermediate string, for printing whole lines of moves
+    public static StringBuilder append(StringBuilder sb, int move, int rows) {
+
+        sb.append((char) ('a' + sourceColumn(move))).append(rows - sourceRow(move));
+        sb.append((char) ('a' + targetColumn(move))).append(rows - targetRow(move));
+
+        int promotion = move >>> 16 & 0xF;
+        if (promotion != 0 && promotion <= TYPES.length)
+            sb.append(TYPES[promotion - 1].getLetter());
+
+        return sb;
+    }
+
+    // the inverse of toString, returns NONE instead of throwing when the text is not a move
+    public static int parse(CharSequence text, int rows) {
+
+        int source = parseSquare(text, 0, rows);
+        if (source < 0)
+            return NONE;
+
+        int target = parseSquare(text, source >>> 16, rows);
+        if (target < 0)
+            return NONE;
+
+        int index = target >>> 16;
+        int move = (source & 0xFF) | (target & 0xFF) << 8;
+        if (index == text.length())
+            return move;
+
+        PieceType type = PieceType.fromLetter(text.charAt(index));
+        if (index + 1 != text.length() || type == null || type == PieceType.PAWN || type == PieceType.KING)
+            return NONE;
+
+        return move | (type.ordinal() + 1) << 16;
+    }
+
+    // square in the low byte and the index after it in the high bits, or -1
+    private static int parseSquare(CharSequence text, int index, int rows) {
+
+        if (index >= text.length())
+            return -1;
+
+        char c = text.charAt(index++);
+        if (c < 'a' || c > 'p')
+            return -1;
+
+        int rank = 0;
+        int digits = 0;
+        while (index < text.length() && digits < 2 && text.charAt(index) >= '0' && text.charAt(index) <= '9') {
+            rank = rank * 10 + text.charAt(index++) - '0';
+            digits++;
+        }
+
+        if (digits == 0 || rank < 1 || rank > rows)
+            return -1;
+
+        return index << 16 | square(rows - rank, c - 'a');
+    }
+
+    public static boolean isPromotion(int move) {
+        return (move >>> 16 & 0xF) != 0;
+    }
+
+    public static PieceType promotion(int move) {
+
+        int type = move >>> 16 & 0xF;
+        if (type > TYPES.length)
+            throw new ChessException("Invalid promotion in move " + Integer.toHexString(move));
+        return (type == 0) ? null : TYPES[type - 1];
+    }
+}
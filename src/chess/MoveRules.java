@@ -0,0 +1,324 @@
+package chess;
+
+// how each type of piece moves, as one stateless instance per PieceType shared by every match;
+// the rules read the match's mailbox, en passant pawn and check flag, so nothing about a match
+// is kept in its pieces but their type, color, move count and square
+abstract class MoveRules {
+
+    private static final MoveRules[] RULES = new MoveRules[PieceType.values().length];
+
+    static {
+        RULES[PieceType.PAWN.ordinal()] = new PawnRules();
+        RULES[PieceType.KNIGHT.ordinal()] = new StepRules(false, false, true);
+        RULES[PieceType.BISHOP.ordinal()] = new StepRules(true, false, false);
+        RULES[PieceType.ROOK.ordinal()] = new StepRules(false, true, false);
+        RULES[PieceType.QUEEN.ordinal()] = new StepRules(true, true, false);
+        RULES[PieceType.KING.ordinal()] = new KingRules();
+        RULES[PieceType.ARCHBISHOP.ordinal()] = new StepRules(true, false, true);
+        RULES[PieceType.CHANCELLOR.ordinal()] = new StepRules(false, true, true);
+    }
+
+    static MoveRules of(PieceType type) {
+        return RULES[type.ordinal()];
+    }
+
+    // appends the pseudo-legal moves of piece, standing on mailbox index from, and returns the new count
+    abstract int generate(ChessMatch chessMatch, Mailbox mailbox, ChessPiece piece, int from, int[] moves, int count);
+
+    // targeted checks, so one move is validated without generating the others: whether piece has a
+    // pseudo-legal move from index from to index to, whatever the promotion
+    abstract boolean canMove(ChessMatch chessMatch, Mailbox mailbox, ChessPiece piece, int from, int to);
+
+    // whether piece has any pseudo-legal move, stopping at the first one
+    abstract boolean hasMove(ChessMatch chessMatch, Mailbox mailbox, ChessPiece piece, int from);
+
+    static int leaperMoves(Mailbox mailbox, int from, Color color, int[] steps, int[] moves, int count) {
+
+        for (int step : steps) {
+            int to = from + step;
+            if (isFreeOrOpponent(mailbox, to, color))
+                moves[count++] = mailbox.square(from) | mailbox.square(to) << 8;
+        }
+
+        return count;
+    }
+
+    static int sliderMoves(Mailbox mailbox, int from, Color color, int[] steps, int[] moves, int count) {
+
+        for (int step : steps)
+            for (int to = from + step; isFreeOrOpponent(mailbox, to, color); to += step) {
+                moves[count++] = mailbox.square(from) | mailbox.square(to) << 8;
+                if (mailbox.get(to) != null)
+                    break;
+            }
+
+        return count;
+    }
+
+    static boolean isLeap(Mailbox mailbox, int from, int to, Color color, int[] steps) {
+
+        for (int step : steps)
+            if (from + step == to)
+                return isFreeOrOpponent(mailbox, to, color);
+
+        return false;
+    }
+
+    // walks the single ray from from towards to, which must be on a line (orthogonal) or a diagonal
+    static boolean isSlide(Mailbox mailbox, int from, int to, Color color, boolean orthogonal) {
+
+        int dr = mailbox.row(to) - mailbox.row(from);
+        int dc = mailbox.column(to) - mailbox.column(from);
+        boolean onRay = orthogonal ? (dr == 0) != (dc == 0) : dr != 0 && Math.abs(dr) == Math.abs(dc);
+        if (!onRay)
+            return false;
+
+        int step = -Integer.signum(dr) * mailbox.up() + Integer.signum(dc);
+        int index = from + step;
+        while (index != to) {
+            if (mailbox.get(index) != null)
+                return false;
+            index += step;
+        }
+
+        return isFreeOrOpponent(mailbox, to, color);
+    }
+
+    // a slider or leaper can move iff one of its first steps can be taken
+    static boolean canTakeAnyStep(Mailbox mailbox, int from, Color color, int[] steps) {
+
+        for (int step : steps)
+            if (isFreeOrOpponent(mailbox, from + step, color))
+                return true;
+
+        return false;
+    }
+
+    private static boolean isFreeOrOpponent(Mailbox mailbox, int index, Color color) {
+
+        if (mailbox.isOffBoard(index))
+            return false;
+
+        ChessPiece p = mailbox.get(index);
+        return p == null || p.getColor() != color;
+    }
+
+    // sliders along diagonals and/or lines, then knight jumps, which covers every piece but pawns and kings
+    private static final class StepRules extends MoveRules {
+
+        private final boolean diagonal;
+        private final boolean orthogonal;
+        private final boolean knight;
+
+        StepRules(boolean diagonal, boolean orthogonal, boolean knight) {
+            this.diagonal = diagonal;
+            this.orthogonal = orthogonal;
+            this.knight = knight;
+        }
+
+        @Override
+        int generate(ChessMatch chessMatch, Mailbox mailbox, ChessPiece piece, int from, int[] moves, int count) {
+
+            Color color = piece.getColor();
+            if (diagonal)
+                count = sliderMoves(mailbox, from, color, mailbox.diagonalSteps, moves, count);
+            if (orthogonal)
+                count = sliderMoves(mailbox, from, color, mailbox.orthogonalSteps, moves, count);
+            if (knight)
+                count = leaperMoves(mailbox, from, color, mailbox.knightSteps, moves, count);
+
+            return count;
+        }
+
+        @Override
+        boolean canMove(ChessMatch chessMatch, Mailbox mailbox, ChessPiece piece, int from, int to) {
+
+            Color color = piece.getColor();
+            return (diagonal && isSlide(mailbox, from, to, color, false))
+                    || (orthogonal && isSlide(mailbox, from, to, color, true))
+                    || (knight && isLeap(mailbox, from, to, color, mailbox.knightSteps));
+        }
+
+        @Override
+        boolean hasMove(ChessMatch chessMatch, Mailbox mailbox, ChessPiece piece, int from) {
+
+            Color color = piece.getColor();
+            return (diagonal && canTakeAnyStep(mailbox, from, color, mailbox.diagonalSteps))
+                    || (orthogonal && canTakeAnyStep(mailbox, from, color, mailbox.orthogonalSteps))
+                    || (knight && canTakeAnyStep(mailbox, from, color, mailbox.knightSteps));
+        }
+    }
+
+    private static final class KingRules extends MoveRules {
+
+        @Override
+        int generate(ChessMatch chessMatch, Mailbox mailbox, ChessPiece piece, int from, int[] moves, int count) {
+
+            count = leaperMoves(mailbox, from, piece.getColor(), mailbox.kingSteps, moves, count);
+
+            // #specialmove castling, kingside then queenside
+            int row = mailbox.row(from);
+            int column = mailbox.column(from);
+            int kingside = mailbox.getColumns() - 1;
+            if (canCastle(chessMatch, mailbox, piece, row, column, kingside))
+                moves[count++] = Move.of(row, column, row, castlingTarget(mailbox, kingside));
+            if (canCastle(chessMatch, mailbox, piece, row, column, 0))
+                moves[count++] = Move.of(row, column, row, castlingTarget(mailbox, 0));
+
+            return count;
+        }
+
+        @Override
+        boolean canMove(ChessMatch chessMatch, Mailbox mailbox, ChessPiece piece, int from, int to) {
+
+            if (isLeap(mailbox, from, to, piece.getColor(), mailbox.kingSteps))
+                return true;
+
+            // #specialmove castling
+            int row = mailbox.row(from);
+            int column = mailbox.column(from);
+            int corner = (mailbox.column(to) > column) ? mailbox.getColumns() - 1 : 0;
+            return mailbox.row(to) == row && mailbox.column(to) == castlingTarget(mailbox, corner)
+                    && canCastle(chessMatch, mailbox, piece, row, column, corner);
+        }
+
+        // castling needs the squares next to the king to be empty, so a plain step is always available then
+        @Override
+        boolean hasMove(ChessMatch chessMatch, Mailbox mailbox, ChessPiece piece, int from) {
+            return canTakeAnyStep(mailbox, from, piece.getColor(), mailbox.kingSteps);
+        }
+
+        // with the rook in the corner at rookColumn: both unmoved, the king not in check, every square
+        // between them empty and none of the king's path attacked; the king must travel at least two
+        // squares so castling is never a plain step
+        private static boolean canCastle(ChessMatch chessMatch, Mailbox mailbox, ChessPiece king, int row, int column, int rookColumn) {
+
+            if (king.getMoveCount() != 0 || chessMatch.getCheck())
+                return false;
+
+            if (Math.abs(castlingTarget(mailbox, rookColumn) - column) < 2)
+                return false;
+
+            ChessPiece rook = mailbox.get(row, rookColumn);
+            if (rook == null || rook.getType() != PieceType.ROOK || rook.getColor() != king.getColor() || rook.getMoveCount() != 0)
+                return false;
+
+            for (int c = Math.min(column, rookColumn) + 1; c < Math.max(column, rookColumn); c++)
+                if (mailbox.get(row, c) != null)
+                    return false;
+
+            // nor may the king cross or land on a square the opponent attacks
+            Color opponent = (king.getColor() == Color.RED) ? Color.BLUE : Color.RED;
+            int target = castlingTarget(mailbox, rookColumn);
+            int direction = Integer.signum(target - column);
+            for (int c = column + direction; c != target + direction; c += direction)
+                if (chessMatch.isAttacked(row, c, opponent))
+                    return false;
+
+            return true;
+        }
+
+        // the king ends two squares from the corner, as on g1 and c1 of the standard board
+        private static int castlingTarget(Mailbox mailbox, int rookColumn) {
+            return (rookColumn == 0) ? 2 : mailbox.getColumns() - 2;
+        }
+    }
+
+    // with every promotion piece for moves to the last row
+    private static final class PawnRules extends MoveRules {
+
+        @Override
+        int generate(ChessMatch chessMatch, Mailbox mailbox, ChessPiece pawn, int from, int[] moves, int count) {
+
+            int forward = (pawn.getColor() == Color.RED) ? mailbox.up() : -mailbox.up();
+
+            int to = from + forward;
+            if (!mailbox.isOffBoard(to) && mailbox.get(to) == null) {
+                count = pawnMove(mailbox, from, to, moves, count);
+                if (pawn.getMoveCount() == 0 && !mailbox.isOffBoard(to + forward) && mailbox.get(to + forward) == null)
+                    count = pawnMove(mailbox, from, to + forward, moves, count);
+            }
+
+            // #specialmove en passant, from the row a double step of the opponent ends on
+            int row = mailbox.row(from);
+            boolean enPassantRow = (pawn.getColor() == Color.RED) ? row == 3 : row == mailbox.getRows() - 4;
+            ChessPiece enPassantVulnerable = chessMatch.getEnPassantVulnerable();
+
+            for (int side = -1; side <= 1; side += 2) {
+
+                to = from + forward + side;
+                if (mailbox.isOffBoard(to))
+                    continue;
+
+                ChessPiece victim = mailbox.get(to);
+                ChessPiece beside = mailbox.get(from + side);
+                if (victim != null && victim.getColor() != pawn.getColor())
+                    count = pawnMove(mailbox, from, to, moves, count);
+                else if (victim == null && enPassantRow && beside != null && beside == enPassantVulnerable && beside.getColor() != pawn.getColor())
+                    count = pawnMove(mailbox, from, to, moves, count);
+            }
+
+            return count;
+        }
+
+        @Override
+        boolean canMove(ChessMatch chessMatch, Mailbox mailbox, ChessPiece pawn, int from, int to) {
+
+            if (mailbox.isOffBoard(to))
+                return false;
+
+            int forward = (pawn.getColor() == Color.RED) ? mailbox.up() : -mailbox.up();
+            if (to == from + forward)
+                return mailbox.get(to) == null;
+
+            if (to == from + 2 * forward)
+                return pawn.getMoveCount() == 0 && mailbox.get(from + forward) == null && mailbox.get(to) == null;
+
+            if (to != from + forward - 1 && to != from + forward + 1)
+                return false;
+
+            ChessPiece victim = mailbox.get(to);
+            if (victim != null)
+                return victim.getColor() != pawn.getColor();
+
+            // #specialmove en passant, against the pawn beside that just made a double step
+            int row = mailbox.row(from);
+            boolean enPassantRow = (pawn.getColor() == Color.RED) ? row == 3 : row == mailbox.getRows() - 4;
+            ChessPiece beside = mailbox.get(to - forward);
+            return enPassantRow && beside != null && beside == chessMatch.getEnPassantVulnerable() && beside.getColor() != pawn.getColor();
+        }
+
+        // the squares in front (straight and diagonal) decide it, a double step needs the single one free
+        @Override
+        boolean hasMove(ChessMatch chessMatch, Mailbox mailbox, ChessPiece pawn, int from) {
+
+            int forward = (pawn.getColor() == Color.RED) ? mailbox.up() : -mailbox.up();
+            for (int side = -1; side <= 1; side++)
+                if (this.canMove(chessMatch, mailbox, pawn, from, from + forward + side))
+                    return true;
+
+            return false;
+        }
+
+        private static int pawnMove(Mailbox mailbox, int from, int to, int[] moves, int count) {
+
+            int move = mailbox.square(from) | mailbox.square(to) << 8;
+            int row = mailbox.row(to);
+
+            // #specialmove promotion, archbishops and chancellors only on boards wider than the standard one
+            if (row == 0 || row == mailbox.getRows() - 1) {
+                moves[count++] = move | (PieceType.QUEEN.ordinal() + 1) << 16;
+                moves[count++] = move | (PieceType.KNIGHT.ordinal() + 1) << 16;
+                moves[count++] = move | (PieceType.ROOK.ordinal() + 1) << 16;
+                moves[count++] = move | (PieceType.BISHOP.ordinal() + 1) << 16;
+                if (mailbox.getColumns() > 8) {
+                    moves[count++] = move | (PieceType.ARCHBISHOP.ordinal() + 1) << 16;
+                    moves[count++] = move | (PieceType.CHANCELLOR.ordinal() + 1) << 16;
+                }
+            } else
+                moves[count++] = move;
+
+            return count;
+        }
+    }
+}
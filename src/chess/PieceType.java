@@ -0,0 +1,29 @@
+package chess;
+
+public enum PieceType {
+
+    PAWN,
+    KNIGHT,
+    BISHOP,
+    ROOK,
+    QUEEN,
+    KING,
+    // variant pieces: bishop + knight and rook + knight
+    ARCHBISHOP,
+    CHANCELLOR;
+
+    private static final String LETTERS = "pnbrqkac";
+    private static final PieceType[] TYPES = values();
+
+    // FEN letter, in lower case
+    public char getLetter() {
+        return LETTERS.charAt(this.ordinal());
+    }
+
+    // null when c is not a FEN piece letter, in either case
+    public static PieceType fromLetter(char c) {
+
+        int index = LETTERS.indexOf(Character.toLowerCase(c));
+        return (index < 0) ? null : TYPES[index];
+    }
+}
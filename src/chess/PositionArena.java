@@ -0,0 +1,182 @@
+package chess;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ObjLongConsumer;
+
+// positions of one board size stored as fixed-width records in direct (off-heap) buffers, so
+// millions of them cost a few dozen bytes each and nothing for the garbage collector to trace:
+//   0  long  Zobrist hash
+//   8  int   turn
+//   12 short half-move clock
+//   14 byte  flags, SIDE_BLUE, EN_PASSANT, CHECK and CHECK_MATE
+//   15 byte  square of the pawn that can be taken en passant
+//   16 one byte per square: 0 when empty, otherwise type + 1 with the BLUE and MOVED bits
+public final class PositionArena {
+
+    public static final int DEFAULT_CHUNK_RECORDS = 1 << 16;
+
+    private static final int HEADER = 16;
+    private static final int SIDE_BLUE = 1;
+    private static final int EN_PASSANT = 2;
+    private static final int CHECK = 4;
+    private static final int CHECK_MATE = 8;
+    private static final int TYPE_MASK = 0x0F;
+    private static final int BLUE = 0x10;
+    private static final int MOVED = 0x20;
+
+    private static final PieceType[] TYPES = PieceType.values();
+
+    private final int rows;
+    private final int columns;
+    private final int recordSize;
+    private final int chunkRecords;
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private long size;
+
+    public PositionArena(int rows, int columns) {
+        this(rows, columns, DEFAULT_CHUNK_RECORDS);
+    }
+
+    public PositionArena(int rows, int columns, int chunkRecords) {
+
+        this.rows = rows;
+        this.columns = columns;
+        this.recordSize = HEADER + rows * columns;
+        if (chunkRecords < 1 || (long) chunkRecords * recordSize > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Invalid chunk size " + chunkRecords);
+        this.chunkRecords = chunkRecords;
+    }
+
+    // appends the position and returns its index
+    public long add(ChessMatch chessMatch) {
+
+        if (chessMatch.getRows() != rows || chessMatch.getColumns() != columns)
+            throw new IllegalArgumentException("Arena holds " + rows + "x" + columns + " boards only");
+
+        if (size == (long) chunks.size() * chunkRecords)
+            chunks.add(ByteBuffer.allocateDirect(chunkRecords * recordSize));
+
+        ByteBuffer chunk = this.chunk(size);
+        int offset = this.offset(size);
+
+        int flags = (chessMatch.getCurrentPlayer() == Color.BLUE) ? SIDE_BLUE : 0;
+        int enPassant = 0;
+        ChessPiece ep = chessMatch.getEnPassantVulnerable();
+        if (ep != null && ep.row() >= 0 && ep.getColor() != chessMatch.getCurrentPlayer()) {
+            flags |= EN_PASSANT;
+            enPassant = Move.square(ep.row(), ep.column());
+        }
+        if (chessMatch.getCheck())
+            flags |= CHECK;
+        if (chessMatch.getCheckMate())
+            flags |= CHECK_MATE;
+
+        chunk.putLong(offset, chessMatch.getHash());
+        chunk.putInt(offset + 8, chessMatch.getTurn());
+        chunk.putShort(offset + 12, (short) Math.min(chessMatch.getHalfMoveClock(), Short.MAX_VALUE));
+        chunk.put(offset + 14, (byte) flags);
+        chunk.put(offset + 15, (byte) enPassant);
+
+        int cell = offset + HEADER;
+        for (int row = 0; row < rows; row++)
+            for (int column = 0; column < columns; column++) {
+
+                ChessPiece p = chessMatch.piece(row, column);
+                int code = 0;
+                if (p != null) {
+                    code = p.getType().ordinal() + 1;
+                    if (p.getColor() == Color.BLUE)
+                        code |= BLUE;
+                    if (p.getMoveCount() > 0)
+                        code |= MOVED;
+                }
+                chunk.put(cell++, (byte) code);
+            }
+
+        return size++;
+    }
+
+    // fills the match from the record, the match must have the arena's board size; this is not free,
+    // every piece goes back through the mailbox, the evaluation and the hash, but the pieces are the
+    // ones the match held before, and check and mate come from the record instead of move generation
+    public ChessMatch load(long index, ChessMatch chessMatch) {
+
+        this.checkIndex(index);
+        if (chessMatch.getRows() != rows || chessMatch.getColumns() != columns)
+            throw new IllegalArgumentException("Arena holds " + rows + "x" + columns + " boards only");
+
+        ByteBuffer chunk = this.chunk(index);
+        int offset = this.offset(index);
+
+        chessMatch.clear();
+        int cell = offset + HEADER;
+        for (int row = 0; row < rows; row++)
+            for (int column = 0; column < columns; column++) {
+
+                int code = chunk.get(cell++);
+                if (code == 0)
+                    continue;
+
+                Color color = ((code & BLUE) != 0) ? Color.BLUE : Color.RED;
+                chessMatch.placeNewPiece(TYPES[(code & TYPE_MASK) - 1], color, row, column, (code & MOVED) != 0);
+            }
+
+        int flags = chunk.get(offset + 14);
+        ChessPiece enPassantVulnerable = null;
+        if ((flags & EN_PASSANT) != 0) {
+            int square = chunk.get(offset + 15) & 0xFF;
+            enPassantVulnerable = chessMatch.piece(Move.row(square), Move.column(square));
+        }
+
+        chessMatch.setState(((flags & SIDE_BLUE) != 0) ? Color.BLUE : Color.RED, chunk.getInt(offset + 8),
+                enPassantVulnerable, chunk.getShort(offset + 12), (flags & CHECK) != 0, (flags & CHECK_MATE) != 0);
+        return chessMatch;
+    }
+
+    // the hash can be read without loading, which is all a deduplication pass needs
+    public long hash(long index) {
+        this.checkIndex(index);
+        return this.chunk(index).getLong(this.offset(index));
+    }
+
+    // loads every record in turn into the same match
+    public void forEach(ChessMatch chessMatch, ObjLongConsumer<ChessMatch> action) {
+
+        for (long i = 0; i < size; i++)
+            action.accept(this.load(i, chessMatch), i);
+    }
+
+    // drops every record, the chunks are released once nothing else refers to them
+    public void clear() {
+        this.chunks.clear();
+        this.size = 0;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public int getRecordSize() {
+        return recordSize;
+    }
+
+    public long offHeapBytes() {
+        return (long) chunks.size() * chunkRecords * recordSize;
+    }
+
+    private ByteBuffer chunk(long index) {
+        return chunks.get((int) (index / chunkRecords));
+    }
+
+    private int offset(long index) {
+        return (int) (index % chunkRecords) * recordSize;
+    }
+
+    private void checkIndex(long index) {
+
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Position " + index + " of " + size);
+    }
+}
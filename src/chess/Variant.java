@@ -0,0 +1,43 @@
+package chess;
+
+// board size and back rank (from the a file, in FEN letters) of the supported starting positions;
+// pawns fill the second rank of each side
+public enum Variant {
+
+    STANDARD(8, 8, "RNBQKBNR"),
+    CAPABLANCA(8, 10, "RNABQKBCNR"),
+    CAPABLANCA_10X10(10, 10, "RNABQKBCNR");
+
+    private final int rows;
+    private final int columns;
+    private final String backRank;
+
+    Variant(int rows, int columns, String backRank) {
+        this.rows = rows;
+        this.columns = columns;
+        this.backRank = backRank;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public String getBackRank() {
+        return backRank;
+    }
+
+    public String startPosition() {
+
+        String pawns = "p".repeat(columns);
+        StringBuilder sb = new StringBuilder();
+        sb.append(backRank.toLowerCase()).append('/').append(pawns).append('/');
+        for (int i = 0; i < rows - 4; i++)
+            sb.append(columns).append('/');
+        sb.append(pawns.toUpperCase()).append('/').append(backRank);
+        return sb.append(" w KQkq - 0 1").toString();
+    }
+}
@@ -0,0 +1,199 @@
+package chess.engine;
+
+import chess.ChessMatch;
+import chess.Fen;
+import chess.Move;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// streams the best lines of a position: every subscriber gets its own search on a copy of the match
+// and receives the top lines each time a depth is completed; a slow subscriber only misses the
+// lines superseded by deeper ones, and cancelling stops the search within a few thousand nodes
+public class Analysis implements Flow.Publisher<List<AnalysisLine>> {
+
+    private final String fen;
+    private final int lines;
+    private final int maxDepth;
+    private final int hashMegabytes;
+
+    public Analysis(ChessMatch chessMatch, int lines, int maxDepth) {
+        this(chessMatch, lines, maxDepth, Engine.DEFAULT_HASH);
+    }
+
+    public Analysis(ChessMatch chessMatch, int lines, int maxDepth, int hashMegabytes) {
+
+        if (lines < 1 || maxDepth < 1)
+            throw new IllegalArgumentException("Analysis needs at least one line and one ply");
+
+        this.fen = Fen.toFen(chessMatch);
+        this.lines = lines;
+        this.maxDepth = maxDepth;
+        this.hashMegabytes = hashMegabytes;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super List<AnalysisLine>> subscriber) {
+
+        AnalysisSubscription subscription = new AnalysisSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+
+        Thread thread = new Thread(() -> this.run(subscription), "analysis");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void run(AnalysisSubscription subscription) {
+
+        try {
+            ChessMatch chessMatch = Fen.parse(fen);
+            Search search = new Search(new TranspositionTable(hashMegabytes));
+            search.setStopSignal(subscription.stopSignal);
+
+            int[] found = new int[lines];
+            for (int depth = 1; depth <= maxDepth && !subscription.stopSignal.get(); depth++) {
+
+                List<AnalysisLine> result = new ArrayList<>(lines);
+                int count = 0;
+                while (count < lines) {
+
+                    // the lines already found at this depth are left out, so the search returns the next best
+                    int move = search.searchIteration(chessMatch, depth, found, count);
+                    if (move == Move.NONE)
+                        break;
+
+                    found[count++] = move;
+                    result.add(new AnalysisLine(count, depth, search.getScore(), search.getNodes(), search.getPrincipalVariation()));
+                }
+
+                if (subscription.stopSignal.get() || result.isEmpty())
+                    break;
+
+                subscription.publish(Collections.unmodifiableList(result));
+
+                // once every line is a forced mate deeper searches add nothing
+                if (result.stream().allMatch(line -> Math.abs(line.getScore()) >= Search.MATE - MoveOrderer.MAX_PLY))
+                    break;
+            }
+
+            subscription.complete(null);
+        } catch (RuntimeException e) {
+            subscription.complete(e);
+        }
+    }
+
+    // delivers the newest lines when the subscriber has demand and keeps only those otherwise;
+    // signals are serialized by letting whichever thread finds the drain idle do the delivery
+    private static final class AnalysisSubscription implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super List<AnalysisLine>> subscriber;
+        private final AtomicBoolean stopSignal = new AtomicBoolean();
+
+        private long demand;
+        private List<AnalysisLine> latest;
+        private boolean done;
+        private Throwable error;
+        private boolean terminated;
+        private boolean draining;
+
+        AnalysisSubscription(Flow.Subscriber<? super List<AnalysisLine>> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+
+            synchronized (this) {
+                if (n <= 0) {
+                    stopSignal.set(true);
+                    done = true;
+                    latest = null;
+                    error = new IllegalArgumentException("Non-positive request " + n);
+                } else
+                    demand = (demand + n < 0) ? Long.MAX_VALUE : demand + n;
+            }
+            this.drain();
+        }
+
+        @Override
+        public void cancel() {
+
+            stopSignal.set(true);
+            synchronized (this) {
+                terminated = true;
+                latest = null;
+            }
+        }
+
+        void publish(List<AnalysisLine> lines) {
+
+            synchronized (this) {
+                latest = lines;
+            }
+            this.drain();
+        }
+
+        void complete(Throwable error) {
+
+            synchronized (this) {
+                if (!done) {
+                    done = true;
+                    this.error = error;
+                }
+            }
+            this.drain();
+        }
+
+        private void drain() {
+
+            synchronized (this) {
+                if (draining)
+                    return;
+                draining = true;
+            }
+
+            while (true) {
+
+                List<AnalysisLine> next = null;
+                Throwable failure = null;
+                synchronized (this) {
+                    if (terminated) {
+                        draining = false;
+                        return;
+                    }
+                    if (latest != null && demand > 0) {
+                        next = latest;
+                        latest = null;
+                        if (demand != Long.MAX_VALUE)
+                            demand--;
+                    } else if (done && (latest == null || error != null)) {
+                        terminated = true;
+                        failure = error;
+                    } else {
+                        draining = false;
+                        return;
+                    }
+                }
+
+                if (next != null) {
+                    try {
+                        subscriber.onNext(next);
+                    } catch (RuntimeException e) {
+                        // a failing subscriber is treated as gone
+                        this.cancel();
+                        throw e;
+                    }
+                } else {
+                    if (failure != null)
+                        subscriber.onError(failure);
+                    else
+                        subscriber.onComplete();
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package chess.engine;
+
+import java.util.Arrays;
+
+// one candidate line of a multi-PV analysis, rank 1 being the best
+public final class AnalysisLine {
+
+    private final int rank;
+    private final int depth;
+    private final int score;
+    private final long nodes;
+    private final int[] moves;
+
+    public AnalysisLine(int rank, int depth, int score, long nodes, int[] moves) {
+        this.rank = rank;
+        this.depth = depth;
+        this.score = score;
+        this.nodes = nodes;
+        this.moves = moves.clone();
+    }
+
+    public int getRank() {
+        return rank;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public int getMove() {
+        return moves[0];
+    }
+
+    public int[] getMoves() {
+        return moves.clone();
+    }
+
+    @Override
+    public String toString() {
+        return "multipv " + rank + " depth " + depth + " score " + score + " nodes " + nodes + " pv " + Arrays.toString(moves);
+    }
+}
@@ -0,0 +1,165 @@
+package chess.engine;
+
+import chess.ChessMatch;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntConsumer;
+
+// runs one search per thread over a shared transposition table (lazy SMP), the first
+// thread plays on the caller's match and the helpers on copies of it
+public class Engine {
+
+    public static final int DEFAULT_HASH = 16;
+
+    private final TranspositionTable table;
+    private final AtomicBoolean stopSignal;
+    private Search[] searches;
+    private Network network;
+
+    private Thread searchThread;
+    private long lastNodes;
+
+    public Engine() {
+        this.table = new TranspositionTable(DEFAULT_HASH);
+        this.stopSignal = new AtomicBoolean();
+        this.setThreads(1);
+    }
+
+    public void setHashSize(int megabytes) {
+        this.waitForSearch();
+        this.table.resize(megabytes);
+    }
+
+    public void setThreads(int threads) {
+
+        this.waitForSearch();
+        this.searches = new Search[Math.max(1, threads)];
+        for (int i = 0; i < searches.length; i++) {
+            searches[i] = new Search(table);
+            searches[i].setStopSignal(stopSignal);
+        }
+    }
+
+    public int getThreads() {
+        return searches.length;
+    }
+
+    // evaluated by the network on every searched match, null for the hand-written evaluation
+    public void setNetwork(Network network) {
+        this.waitForSearch();
+        this.network = network;
+    }
+
+    public Network getNetwork() {
+        return network;
+    }
+
+    public void newGame() {
+
+        this.waitForSearch();
+        for (Search s : searches)
+            s.clear();
+    }
+
+    // blocking search, a zero limit means no limit
+    public int search(ChessMatch chessMatch, int depth, long nodes, long millis, SearchListener listener) {
+
+        this.stopSignal.set(false);
+        return this.run(chessMatch, depth, nodes, millis, listener);
+    }
+
+    // searches on a background thread and reports the best move to onBestMove, stop() ends it early
+    public void start(ChessMatch chessMatch, int depth, long nodes, long millis, SearchListener listener, IntConsumer onBestMove) {
+
+        this.waitForSearch();
+        this.stopSignal.set(false);
+
+        this.searchThread = new Thread(() -> onBestMove.accept(this.run(chessMatch, depth, nodes, millis, listener)), "search");
+        this.searchThread.start();
+    }
+
+    public void stop() {
+        this.stopSignal.set(true);
+    }
+
+    public void waitForSearch() {
+
+        if (searchThread == null)
+            return;
+
+        try {
+            searchThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        searchThread = null;
+    }
+
+    // lets a background search run for at most millis more before stopping it
+    public void waitForSearch(long millis) {
+
+        if (searchThread == null)
+            return;
+
+        try {
+            searchThread.join(Math.max(1, millis));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        this.stop();
+        this.waitForSearch();
+    }
+
+    private int run(ChessMatch chessMatch, int depth, long nodes, long millis, SearchListener listener) {
+
+        Thread[] helpers = new Thread[searches.length - 1];
+
+        for (int i = 0; i < helpers.length; i++) {
+
+            Search helper = searches[i + 1];
+            ChessMatch copy = new ChessMatch(chessMatch);
+            copy.setNetwork(this.networkFor(copy));
+            helpers[i] = new Thread(() -> helper.search(copy, depth, 0, millis), "search-helper-" + (i + 1));
+            helpers[i].setDaemon(true);
+            helpers[i].start();
+        }
+
+        chessMatch.setNetwork(this.networkFor(chessMatch));
+        Search main = searches[0];
+        main.setListener(listener);
+        int bestMove = main.search(chessMatch, depth, nodes, millis);
+        main.setListener(null);
+
+        this.stopSignal.set(true);
+        long total = main.getNodes();
+        for (int i = 0; i < helpers.length; i++) {
+            try {
+                helpers[i].join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            total += searches[i + 1].getNodes();
+        }
+
+        this.lastNodes = total;
+        return bestMove;
+    }
+
+    // boards of another size than the network's keep the hand-written evaluation
+    private Network networkFor(ChessMatch chessMatch) {
+
+        if (network == null || network.getRows() != chessMatch.getRows() || network.getColumns() != chessMatch.getColumns())
+            return null;
+        return network;
+    }
+
+    public Search getMainSearch() {
+        return searches[0];
+    }
+
+    // nodes of every thread in the last search
+    public long getNodes() {
+        return lastNodes;
+    }
+}
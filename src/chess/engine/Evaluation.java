@@ -0,0 +1,312 @@
+package chess.engine;
+
+import boardgame.Piece;
+import chess.ChessMatch;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.Color;
+import chess.Move;
+import chess.PieceType;
+import chess.metrics.Metrics;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class Evaluation {
+
+    // indexed by PieceType ordinal: pawn, knight, bishop, rook, queen, king, archbishop, chancellor
+    public static final int[] MG_VALUE = {100, 320, 330, 500, 900, 0, 825, 875};
+    public static final int[] EG_VALUE = {120, 300, 320, 520, 920, 0, 850, 900};
+
+    private static final int[] PHASE_WEIGHT = {0, 1, 1, 2, 4, 0, 3, 4};
+    private static final int TOTAL_PHASE = 24;
+
+    private static final int[] MG_MOBILITY = {0, 4, 5, 2, 1, 0, 3, 2};
+    private static final int[] EG_MOBILITY = {0, 4, 5, 4, 2, 0, 3, 3};
+
+    // table used by each type, archbishops and chancellors borrow the bishop and rook tables
+    private static final int[] TABLE = {0, 1, 2, 3, 4, 5, 2, 3};
+
+    // piece-square tables seen from RED, first entry is a8 (row 0, column 0 of the board);
+    // other board sizes are scaled onto these 8x8 tables
+    private static final int[][] MG_TABLE = {
+            {
+                    0, 0, 0, 0, 0, 0, 0, 0,
+                    50, 50, 50, 50, 50, 50, 50, 50,
+                    10, 10, 20, 30, 30, 20, 10, 10,
+                    5, 5, 10, 25, 25, 10, 5, 5,
+                    0, 0, 0, 20, 20, 0, 0, 0,
+                    5, -5, -10, 0, 0, -10, -5, 5,
+                    5, 10, 10, -20, -20, 10, 10, 5,
+                    0, 0, 0, 0, 0, 0, 0, 0
+            },
+            {
+                    -50, -40, -30, -30, -30, -30, -40, -50,
+                    -40, -20, 0, 0, 0, 0, -20, -40,
+                    -30, 0, 10, 15, 15, 10, 0, -30,
+                    -30, 5, 15, 20, 20, 15, 5, -30,
+                    -30, 0, 15, 20, 20, 15, 0, -30,
+                    -30, 5, 10, 15, 15, 10, 5, -30,
+                    -40, -20, 0, 5, 5, 0, -20, -40,
+                    -50, -40, -30, -30, -30, -30, -40, -50
+            },
+            {
+                    -20, -10, -10, -10, -10, -10, -10, -20,
+                    -10, 0, 0, 0, 0, 0, 0, -10,
+                    -10, 0, 5, 10, 10, 5, 0, -10,
+                    -10, 5, 5, 10, 10, 5, 5, -10,
+                    -10, 0, 10, 10, 10, 10, 0, -10,
+                    -10, 10, 10, 10, 10, 10, 10, -10,
+                    -10, 5, 0, 0, 0, 0, 5, -10,
+                    -20, -10, -10, -10, -10, -10, -10, -20
+            },
+            {
+                    0, 0, 0, 0, 0, 0, 0, 0,
+                    5, 10, 10, 10, 10, 10, 10, 5,
+                    -5, 0, 0, 0, 0, 0, 0, -5,
+                    -5, 0, 0, 0, 0, 0, 0, -5,
+                    -5, 0, 0, 0, 0, 0, 0, -5,
+                    -5, 0, 0, 0, 0, 0, 0, -5,
+                    -5, 0, 0, 0, 0, 0, 0, -5,
+                    0, 0, 0, 5, 5, 0, 0, 0
+            },
+            {
+                    -20, -10, -10, -5, -5, -10, -10, -20,
+                    -10, 0, 0, 0, 0, 0, 0, -10,
+                    -10, 0, 5, 5, 5, 5, 0, -10,
+                    -5, 0, 5, 5, 5, 5, 0, -5,
+                    0, 0, 5, 5, 5, 5, 0, -5,
+                    -10, 5, 5, 5, 5, 5, 0, -10,
+                    -10, 0, 5, 0, 0, 0, 0, -10,
+                    -20, -10, -10, -5, -5, -10, -10, -20
+            },
+            {
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -20, -30, -30, -40, -40, -30, -30, -20,
+                    -10, -20, -20, -20, -20, -20, -20, -10,
+                    20, 20, 0, 0, 0, 0, 20, 20,
+                    20, 30, 10, 0, 0, 10, 30, 20
+            }
+    };
+
+    private static final int[][] EG_TABLE = {
+            {
+                    0, 0, 0, 0, 0, 0, 0, 0,
+                    80, 80, 80, 80, 80, 80, 80, 80,
+                    50, 50, 50, 50, 50, 50, 50, 50,
+                    30, 30, 30, 30, 30, 30, 30, 30,
+                    15, 15, 15, 15, 15, 15, 15, 15,
+                    5, 5, 5, 5, 5, 5, 5, 5,
+                    0, 0, 0, 0, 0, 0, 0, 0,
+                    0, 0, 0, 0, 0, 0, 0, 0
+            },
+            MG_TABLE[1],
+            MG_TABLE[2],
+            {
+                    0, 0, 0, 0, 0, 0, 0, 0,
+                    0, 0, 0, 0, 0, 0, 0, 0,
+                    0, 0, 0, 0, 0, 0, 0, 0,
+                    0, 0, 0, 0, 0, 0, 0, 0,
+                    0, 0, 0, 0, 0, 0, 0, 0,
+                    0, 0, 0, 0, 0, 0, 0, 0,
+                    0, 0, 0, 0, 0, 0, 0, 0,
+                    0, 0, 0, 0, 0, 0, 0, 0
+            },
+            MG_TABLE[4],
+            {
+                    -50, -40, -30, -20, -20, -30, -40, -50,
+                    -30, -20, -10, 0, 0, -10, -20, -30,
+                    -30, -10, 20, 30, 30, 20, -10, -30,
+                    -30, -10, 30, 40, 40, 30, -10, -30,
+                    -30, -10, 30, 40, 40, 30, -10, -30,
+                    -30, -10, 20, 30, 30, 20, -10, -30,
+                    -30, -30, 0, 0, 0, 0, -30, -30,
+                    -50, -30, -30, -30, -30, -30, -30, -50
+            }
+    };
+
+    // material and placement, always RED minus BLUE, kept up to date by ChessMatch
+    private int mgScore;
+    private int egScore;
+    private int phase;
+
+    // Zobrist keys of the pawns alone, the pawn structure is looked up by it
+    private long pawnKey;
+
+    // set only when a network replaces the hand-written terms
+    private NeuralEvaluation neural;
+
+    // the pawn table and working buffers belong to the evaluating thread, one set per board size,
+    // so a match that is only stored costs none of them and evaluated ones share them
+    private static final ThreadLocal<Scratch[]> SCRATCH = ThreadLocal.withInitial(
+            () -> new Scratch[(ChessPosition.MAX_SIZE + 1) * (ChessPosition.MAX_SIZE + 1)]);
+
+    // 8x8 table index of every square, for RED and for BLUE (mirrored), one per board size
+    private static final Map<Integer, int[][]> SQUARES = new ConcurrentHashMap<>();
+
+    private final int[][] squares;
+    private final int rows;
+    private final int columns;
+
+    public Evaluation() {
+        this(8, 8);
+    }
+
+    public Evaluation(int rows, int columns) {
+
+        this.rows = rows;
+        this.columns = columns;
+        this.squares = SQUARES.computeIfAbsent(rows << 8 | columns, size -> squares(rows, columns));
+    }
+
+    private static int[][] squares(int rows, int columns) {
+
+        int[][] squares = new int[2][256];
+        for (int row = 0; row < rows; row++)
+            for (int column = 0; column < columns; column++) {
+                int c = column * 8 / columns;
+                squares[Color.RED.ordinal()][Move.square(row, column)] = (row * 8 / rows) * 8 + c;
+                squares[Color.BLUE.ordinal()][Move.square(row, column)] = ((rows - 1 - row) * 8 / rows) * 8 + c;
+            }
+
+        return squares;
+    }
+
+    public void add(ChessPiece piece, int row, int column) {
+        this.update(piece, row, column, 1);
+    }
+
+    public void remove(ChessPiece piece, int row, int column) {
+        this.update(piece, row, column, -1);
+    }
+
+    private void update(ChessPiece piece, int row, int column, int delta) {
+
+        int type = piece.getType().ordinal();
+        int square = squares[piece.getColor().ordinal()][Move.square(row, column)];
+        int sign = (piece.getColor() == Color.RED) ? delta : -delta;
+
+        this.mgScore += sign * (MG_VALUE[type] + MG_TABLE[TABLE[type]][square]);
+        this.egScore += sign * (EG_VALUE[type] + EG_TABLE[TABLE[type]][square]);
+        this.phase += delta * PHASE_WEIGHT[type];
+
+        if (piece.getType() == PieceType.PAWN)
+            this.pawnKey ^= Zobrist.piece(PieceType.PAWN, piece.getColor(), row, column);
+
+        if (neural != null)
+            neural.update(piece, row, column, delta);
+    }
+
+    // null goes back to the hand-written evaluation
+    public void setNetwork(Network network, List<Piece> pieces) {
+
+        if (network == this.getNetwork())
+            return;
+        if (network != null && (network.rows != rows || network.columns != columns))
+            throw new IllegalArgumentException("Network is for " + network.rows + "x" + network.columns + " boards only");
+
+        this.neural = (network != null) ? new NeuralEvaluation(network) : null;
+        if (neural != null)
+            neural.refresh(pieces);
+    }
+
+    public Network getNetwork() {
+        return (neural != null) ? neural.getNetwork() : null;
+    }
+
+    public int evaluate(ChessMatch chessMatch) {
+
+        if (neural != null)
+            return neural.evaluate(chessMatch.getCurrentPlayer());
+
+        int mg = this.mgScore;
+        int eg = this.egScore;
+
+        Scratch scratch = this.scratch();
+        List<Piece> pieces = chessMatch.getPiecesOnTheBoard();
+        int pawns = this.pawnEntry(scratch, pieces);
+        mg += scratch.pawnTable.mg(pawns);
+        eg += scratch.pawnTable.eg(pawns);
+
+        for (int i = 0; i < pieces.size(); i++) {
+
+            ChessPiece p = (ChessPiece) pieces.get(i);
+            int type = p.getType().ordinal();
+            if (MG_MOBILITY[type] == 0 && EG_MOBILITY[type] == 0)
+                continue;
+
+            int mobility = chessMatch.generateMoves(p, scratch.moves);
+            int sign = (p.getColor() == Color.RED) ? 1 : -1;
+            mg += sign * mobility * MG_MOBILITY[type];
+            eg += sign * mobility * EG_MOBILITY[type];
+        }
+
+        int score = this.taper(mg, eg);
+        return (chessMatch.getCurrentPlayer() == Color.RED) ? score : -score;
+    }
+
+    private Scratch scratch() {
+
+        Scratch[] scratches = SCRATCH.get();
+        int index = rows * (ChessPosition.MAX_SIZE + 1) + columns;
+        if (scratches[index] == null)
+            scratches[index] = new Scratch(rows, columns);
+        return scratches[index];
+    }
+
+    private int pawnEntry(Scratch scratch, List<Piece> pieces) {
+
+        PawnTable pawnTable = scratch.pawnTable;
+        PawnStructure pawnStructure = scratch.pawnStructure;
+        int entry = pawnTable.probe(pawnKey);
+        Metrics.pawnProbe(entry >= 0);
+        if (entry >= 0)
+            return entry;
+
+        pawnStructure.clear();
+        for (int i = 0; i < pieces.size(); i++) {
+            ChessPiece p = (ChessPiece) pieces.get(i);
+            if (p.getType() == PieceType.PAWN)
+                pawnStructure.add(p.getColor(), p.getPosition().getRow(), p.getPosition().getColumn());
+        }
+        pawnStructure.score();
+        return pawnTable.store(pawnKey, pawnStructure.mg, pawnStructure.eg);
+    }
+
+    // material and piece-square part only, from the point of view of color
+    public int incrementalScore(Color color) {
+
+        int score = this.taper(this.mgScore, this.egScore);
+        return (color == Color.RED) ? score : -score;
+    }
+
+    private int taper(int mg, int eg) {
+
+        int p = Math.min(this.phase, TOTAL_PHASE);
+        return (mg * p + eg * (TOTAL_PHASE - p)) / TOTAL_PHASE;
+    }
+
+    public long getPawnKey() {
+        return pawnKey;
+    }
+
+    public int getPhase() {
+        return phase;
+    }
+
+    private static final class Scratch {
+
+        private final PawnTable pawnTable = new PawnTable();
+        private final PawnStructure pawnStructure;
+        // the mobility terms count the moves of one piece at a time in here
+        private final int[] moves = new int[MoveOrderer.MAX_MOVES];
+
+        Scratch(int rows, int columns) {
+            this.pawnStructure = new PawnStructure(rows, columns);
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package chess.engine;
+
+import chess.ChessMatch;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+// depth-first proof-number search for forced mates of the side to move (the attacker), who only
+// tries checking moves; numbers are kept from the side to move (phi, delta = proof and disproof
+// numbers at attacker nodes, the other way round at defender nodes) in a table keyed by position and
+// remaining plies, so mates in 1, 2, ... moves are searched in turn and the first one proven is the shortest
+public class MateSolver {
+
+    private static final int INFINITE = 100_000_000;
+    private static final int MAX_MOVES = (MoveOrderer.MAX_PLY - 1) / 2;
+
+    private static final long[] DEPTH_KEYS = new long[MoveOrderer.MAX_PLY];
+
+    static {
+        SplittableRandom random = new SplittableRandom(0xD1F9_0A7EL);
+        for (int i = 0; i < DEPTH_KEYS.length; i++)
+            DEPTH_KEYS[i] = random.nextLong();
+    }
+
+    private final long[] keys;
+    private final int[] phis;
+    private final int[] deltas;
+    private final int mask;
+
+    private final int[][] moves = new int[MoveOrderer.MAX_PLY][MoveOrderer.MAX_MOVES];
+    private final long[][] childKeys = new long[MoveOrderer.MAX_PLY][MoveOrderer.MAX_MOVES];
+    // children that repeat a position of the current line, drawn on this path only
+    private final boolean[][] childRepeats = new boolean[MoveOrderer.MAX_PLY][MoveOrderer.MAX_MOVES];
+
+    private long nodes;
+    private long nodeLimit;
+    private boolean stopped;
+
+    // the table takes megabytes of memory, 16 bytes an entry
+    public MateSolver(int megabytes) {
+
+        long entries = Math.max(1L, (long) megabytes * 1024 * 1024 / 16);
+        int size = Integer.highestOneBit((int) Math.min(entries, 1 << 30));
+        this.keys = new long[size];
+        this.phis = new int[size];
+        this.deltas = new int[size];
+        this.mask = size - 1;
+    }
+
+    public void setNodeLimit(long nodeLimit) {
+        this.nodeLimit = nodeLimit;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    // whether the last call ran out of nodes, its answer then only means "not proven"
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    // the shortest mate of at most maxMoves moves with the defender's longest resistance, or an empty
+    // line when there is none or the node limit ran out; the match is left as it was
+    public int[] solve(ChessMatch chessMatch, int maxMoves) {
+
+        this.nodes = 0;
+        this.stopped = false;
+        Arrays.fill(keys, 0L);
+
+        int length = this.mateLength(chessMatch, Math.min(maxMoves, MAX_MOVES));
+        if (length == 0)
+            return new int[0];
+
+        int[] line = new int[2 * length - 1];
+        int size = 0;
+        int[] candidates = new int[MoveOrderer.MAX_MOVES];
+
+        for (int n = length; n > 0 && !stopped; ) {
+
+            // any check that keeps the mate within n moves
+            int count = chessMatch.generateMoves(candidates);
+            int attack = 0;
+            for (int i = 0; i < count && attack == 0; i++) {
+                if (!chessMatch.makeMove(candidates[i]))
+                    continue;
+                if (chessMatch.getCheck() && this.proven(chessMatch, 2 * n - 2))
+                    attack = candidates[i];
+                chessMatch.unmakeMove();
+            }
+            if (attack == 0)
+                break;
+
+            chessMatch.makeMove(attack);
+            line[size++] = attack;
+            if (n == 1)
+                break;
+
+            // the reply that delays the mate the longest
+            count = chessMatch.generateMoves(candidates);
+            int defence = 0;
+            int longest = 0;
+            for (int i = 0; i < count; i++) {
+                if (!chessMatch.makeMove(candidates[i]))
+                    continue;
+                int m = this.mateLength(chessMatch, n - 1);
+                chessMatch.unmakeMove();
+                if (m > longest) {
+                    longest = m;
+                    defence = candidates[i];
+                }
+            }
+            if (defence == 0)
+                break;
+
+            chessMatch.makeMove(defence);
+            line[size++] = defence;
+            n = longest;
+        }
+
+        for (int i = 0; i < size; i++)
+            chessMatch.unmakeMove();
+
+        return stopped ? new int[0] : Arrays.copyOf(line, size);
+    }
+
+    // whether move, which must give check, mates within moves moves against any defence; the table is
+    // kept from the last solve, so testing the alternatives to a solution reuses its proofs
+    public boolean mates(ChessMatch chessMatch, int move, int moves) {
+
+        this.nodes = 0;
+        this.stopped = false;
+        if (moves < 1 || moves > MAX_MOVES || !chessMatch.makeMove(move))
+            return false;
+
+        boolean mates = chessMatch.getCheck() && this.proven(chessMatch, 2 * moves - 2);
+        chessMatch.unmakeMove();
+        return mates;
+    }
+
+    private int mateLength(ChessMatch chessMatch, int maxMoves) {
+
+        for (int n = 1; n <= maxMoves && !stopped; n++)
+            if (this.proven(chessMatch, 2 * n - 1))
+                return n;
+        return 0;
+    }
+
+    // whether the attacker mates within remaining plies, the attacker moves when remaining is odd
+    private boolean proven(ChessMatch chessMatch, int remaining) {
+
+        this.mid(chessMatch, 0, remaining, INFINITE, INFINITE);
+        int entry = this.probe(chessMatch.getHash() ^ DEPTH_KEYS[remaining]);
+        if (entry < 0 || stopped)
+            return false;
+        return (remaining % 2 == 1) ? phis[entry] == 0 : deltas[entry] == 0;
+    }
+
+    private void mid(ChessMatch chessMatch, int ply, int remaining, int thresholdPhi, int thresholdDelta) {
+
+        nodes++;
+        if (nodeLimit > 0 && nodes >= nodeLimit)
+            stopped = true;
+
+        long key = chessMatch.getHash() ^ DEPTH_KEYS[remaining];
+        boolean attacker = remaining % 2 == 1;
+
+        // out of plies the defender holds unless already mated
+        if (remaining == 0) {
+            boolean mated = chessMatch.getCheck() && !chessMatch.hasLegalMove();
+            this.store(key, mated ? INFINITE : 0, mated ? 0 : INFINITE);
+            return;
+        }
+
+        int count = this.expand(chessMatch, ply, remaining, attacker);
+        if (count == 0) {
+            // no check left for the attacker, or the defender is mated (lost) or stalemated (held)
+            boolean sideToMoveLost = attacker || chessMatch.getCheck();
+            this.store(key, sideToMoveLost ? INFINITE : 0, sideToMoveLost ? 0 : INFINITE);
+            return;
+        }
+
+        int[] children = moves[ply];
+        long[] childKey = childKeys[ply];
+        boolean[] repeats = childRepeats[ply];
+
+        // a repetition is a draw the attacker has failed to avoid; it depends on the line that led
+        // here, so it is scored for this node's children only and never stored in the table
+        int repeatPhi = attacker ? 0 : INFINITE;
+        int repeatDelta = attacker ? INFINITE : 0;
+
+        while (true) {
+
+            int phi = INFINITE;
+            int delta = 0;
+            int best = -1;
+            int bestDelta = INFINITE;
+            int secondDelta = INFINITE;
+            int bestPhi = 0;
+
+            for (int i = 0; i < count; i++) {
+
+                int entry = repeats[i] ? -1 : this.probe(childKey[i]);
+                int childPhi = repeats[i] ? repeatPhi : (entry < 0) ? 1 : phis[entry];
+                int childDelta = repeats[i] ? repeatDelta : (entry < 0) ? 1 : deltas[entry];
+
+                phi = Math.min(phi, childDelta);
+                delta = Math.min(INFINITE, delta + childPhi);
+
+                if (childDelta < bestDelta) {
+                    secondDelta = bestDelta;
+                    bestDelta = childDelta;
+                    bestPhi = childPhi;
+                    best = i;
+                } else if (childDelta < secondDelta)
+                    secondDelta = childDelta;
+            }
+
+            if (phi >= thresholdPhi || delta >= thresholdDelta || stopped) {
+                this.store(key, phi, delta);
+                return;
+            }
+
+            int childThresholdPhi = thresholdDelta - (delta - bestPhi);
+            int childThresholdDelta = Math.min(thresholdPhi, secondDelta + 1);
+
+            chessMatch.makeMove(children[best]);
+            this.mid(chessMatch, ply + 1, remaining - 1, childThresholdPhi, childThresholdDelta);
+            chessMatch.unmakeMove();
+        }
+    }
+
+    // the legal moves of the node, only the checking ones for the attacker, with the table keys of the children
+    private int expand(ChessMatch chessMatch, int ply, int remaining, boolean attacker) {
+
+        int[] children = moves[ply];
+        long[] childKey = childKeys[ply];
+        boolean[] repeats = childRepeats[ply];
+        long depthKey = DEPTH_KEYS[remaining - 1];
+
+        int generated = chessMatch.generateMoves(children);
+        int count = 0;
+        for (int i = 0; i < generated; i++) {
+
+            int move = children[i];
+            if (!chessMatch.makeMove(move))
+                continue;
+
+            if (!attacker || chessMatch.getCheck()) {
+                children[count] = move;
+                repeats[count] = chessMatch.repetitionCount() > 0;
+                childKey[count++] = chessMatch.getHash() ^ depthKey;
+            }
+            chessMatch.unmakeMove();
+        }
+
+        return count;
+    }
+
+    private int probe(long key) {
+
+        int index = (int) key & mask;
+        return (keys[index] == key) ? index : -1;
+    }
+
+    private void store(long key, int phi, int delta) {
+
+        int index = (int) key & mask;
+        keys[index] = key;
+        phis[index] = phi;
+        deltas[index] = delta;
+    }
+}
@@ -0,0 +1,169 @@
+package chess.engine;
+
+import chess.ChessMatch;
+import chess.ChessPiece;
+import chess.Move;
+import chess.PieceType;
+
+import java.util.Arrays;
+
+public class MoveOrderer {
+
+    public static final int MAX_PLY = 128;
+    public static final int MAX_MOVES = 256;
+
+    private static final int HASH_MOVE = 1 << 30;
+    private static final int GOOD_CAPTURE = 1 << 28;
+    private static final int FIRST_KILLER = 1 << 27;
+    private static final int SECOND_KILLER = FIRST_KILLER - 1;
+    private static final int HISTORY_LIMIT = 1 << 24;
+
+    // one move list per ply so the search never allocates while walking the tree
+    private final int[][] moves = new int[MAX_PLY][MAX_MOVES];
+    private final int[][] scores = new int[MAX_PLY][MAX_MOVES];
+    private final int[] count = new int[MAX_PLY];
+    private final int[] next = new int[MAX_PLY];
+
+    private final int[][] killers = new int[MAX_PLY][2];
+
+    // butterfly table: [color][source square << 8 | target square]
+    private final int[][] history = new int[2][1 << 16];
+
+    public void prepare(ChessMatch chessMatch, int ply, int hashMove) {
+
+        int[] list = this.moves[ply];
+        int[] score = this.scores[ply];
+        int n = chessMatch.generateMoves(list);
+        int color = chessMatch.getCurrentPlayer().ordinal();
+
+        for (int i = 0; i < n; i++) {
+
+            int move = list[i];
+            if (move == hashMove)
+                score[i] = HASH_MOVE;
+            else if (isCapture(chessMatch, move) || Move.isPromotion(move))
+                score[i] = GOOD_CAPTURE + mvvLva(chessMatch, move);
+            else if (move == killers[ply][0])
+                score[i] = FIRST_KILLER;
+            else if (move == killers[ply][1])
+                score[i] = SECOND_KILLER;
+            else
+                score[i] = history[color][move & 0xFFFF];
+        }
+
+        this.count[ply] = n;
+        this.next[ply] = 0;
+    }
+
+    // captures and queen promotions only, for the quiescence search
+    public void prepareCaptures(ChessMatch chessMatch, int ply) {
+
+        int[] list = this.moves[ply];
+        int[] score = this.scores[ply];
+        int n = chessMatch.generateMoves(list);
+        int kept = 0;
+
+        for (int i = 0; i < n; i++) {
+
+            int move = list[i];
+            PieceType promotion = Move.promotion(move);
+            if (promotion == PieceType.QUEEN || (promotion == null && isCapture(chessMatch, move))) {
+                list[kept] = move;
+                score[kept] = mvvLva(chessMatch, move);
+                kept++;
+            }
+        }
+
+        this.count[ply] = kept;
+        this.next[ply] = 0;
+    }
+
+    // hands out the best remaining move, one selection sort step at a time
+    public int next(int ply) {
+
+        int i = this.next[ply];
+        int n = this.count[ply];
+        if (i >= n)
+            return Move.NONE;
+
+        int[] list = this.moves[ply];
+        int[] score = this.scores[ply];
+
+        int best = i;
+        for (int j = i + 1; j < n; j++)
+            if (score[j] > score[best])
+                best = j;
+
+        int move = list[best];
+        list[best] = list[i];
+        list[i] = move;
+
+        int s = score[best];
+        score[best] = score[i];
+        score[i] = s;
+
+        this.next[ply] = i + 1;
+        return move;
+    }
+
+    // called with the position restored, after a quiet move caused a beta cutoff
+    public void cutoff(ChessMatch chessMatch, int ply, int move, int depth) {
+
+        if (killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+
+        int[] table = history[chessMatch.getCurrentPlayer().ordinal()];
+        table[move & 0xFFFF] += depth * depth;
+
+        if (table[move & 0xFFFF] > HISTORY_LIMIT)
+            for (int i = 0; i < table.length; i++)
+                table[i] /= 2;
+    }
+
+    public void age() {
+
+        for (int[] table : history)
+            for (int i = 0; i < table.length; i++)
+                table[i] /= 8;
+
+        for (int[] k : killers)
+            Arrays.fill(k, Move.NONE);
+    }
+
+    public void clear() {
+
+        for (int[] table : history)
+            Arrays.fill(table, 0);
+
+        for (int[] k : killers)
+            Arrays.fill(k, Move.NONE);
+    }
+
+    public static boolean isCapture(ChessMatch chessMatch, int move) {
+
+        if (chessMatch.piece(Move.targetRow(move), Move.targetColumn(move)) != null)
+            return true;
+
+        // #specialmove en passant
+        ChessPiece p = chessMatch.piece(Move.sourceRow(move), Move.sourceColumn(move));
+        return p.getType() == PieceType.PAWN && Move.sourceColumn(move) != Move.targetColumn(move);
+    }
+
+    private static int mvvLva(ChessMatch chessMatch, int move) {
+
+        ChessPiece victim = chessMatch.piece(Move.targetRow(move), Move.targetColumn(move));
+        ChessPiece attacker = chessMatch.piece(Move.sourceRow(move), Move.sourceColumn(move));
+
+        int victimValue = (victim == null) ? 0 : Evaluation.MG_VALUE[victim.getType().ordinal()];
+        if (victim == null && attacker.getType() == PieceType.PAWN && Move.sourceColumn(move) != Move.targetColumn(move))
+            victimValue = Evaluation.MG_VALUE[PieceType.PAWN.ordinal()];
+
+        PieceType promotion = Move.promotion(move);
+        if (promotion != null)
+            victimValue += Evaluation.MG_VALUE[promotion.ordinal()];
+
+        return victimValue * 8 - attacker.getType().ordinal();
+    }
+}
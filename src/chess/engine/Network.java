@@ -0,0 +1,127 @@
+package chess.engine;
+
+import chess.PieceType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+
+// the weights of a small quantized network for one board size, read from a file:
+//   int magic, int version, int rows, int columns, int transformer size, int hidden1, int hidden2
+//   feature transformer: features x transformer shorts, then transformer bias shorts
+//   hidden layer 1: hidden1 x (2 x transformer) bytes, then hidden1 bias ints
+//   hidden layer 2: hidden2 x hidden1 bytes, then hidden2 bias ints
+//   output: hidden2 bytes, then one bias int
+//   the CRC32 of all the bytes before it as a long
+// a feature is a piece seen from one side: (own or opponent, type, square with that side's first row as row 0),
+// see NeuralEvaluation for how the layers are applied; the hidden layer weights are kept input-major
+// once loaded, so the inputs the clamp left at zero can be skipped
+public final class Network {
+
+    static final int TYPES = PieceType.values().length;
+
+    private static final int MAGIC = 0x4E4E5545;
+    private static final int VERSION = 1;
+    private static final int HEADER = 28;
+    private static final int MAX_LAYER = 4096;
+
+    final int rows;
+    final int columns;
+    final int features;
+    final int transformerSize;
+    final int hidden1;
+    final int hidden2;
+
+    final short[] transformerWeights;
+    final short[] transformerBias;
+    final byte[] hidden1Weights;
+    final int[] hidden1Bias;
+    final byte[] hidden2Weights;
+    final int[] hidden2Bias;
+    final byte[] outputWeights;
+    final int outputBias;
+
+    private Network(ByteBuffer buffer) {
+
+        this.rows = buffer.getInt();
+        this.columns = buffer.getInt();
+        this.transformerSize = buffer.getInt();
+        this.hidden1 = buffer.getInt();
+        this.hidden2 = buffer.getInt();
+        this.features = 2 * TYPES * rows * columns;
+
+        this.transformerWeights = new short[features * transformerSize];
+        buffer.asShortBuffer().get(transformerWeights);
+        buffer.position(buffer.position() + 2 * transformerWeights.length);
+        this.transformerBias = new short[transformerSize];
+        buffer.asShortBuffer().get(transformerBias);
+        buffer.position(buffer.position() + 2 * transformerBias.length);
+
+        this.hidden1Weights = transpose(buffer, hidden1, 2 * transformerSize);
+        this.hidden1Bias = new int[hidden1];
+        buffer.asIntBuffer().get(hidden1Bias);
+        buffer.position(buffer.position() + 4 * hidden1Bias.length);
+
+        this.hidden2Weights = transpose(buffer, hidden2, hidden1);
+        this.hidden2Bias = new int[hidden2];
+        buffer.asIntBuffer().get(hidden2Bias);
+        buffer.position(buffer.position() + 4 * hidden2Bias.length);
+
+        this.outputWeights = new byte[hidden2];
+        buffer.get(outputWeights);
+        this.outputBias = buffer.getInt();
+    }
+
+    // reads outputs x inputs weights and returns them as inputs x outputs
+    private static byte[] transpose(ByteBuffer buffer, int outputs, int inputs) {
+
+        byte[] weights = new byte[outputs * inputs];
+        for (int j = 0; j < outputs; j++)
+            for (int i = 0; i < inputs; i++)
+                weights[i * outputs + j] = buffer.get();
+        return weights;
+    }
+
+    public static Network load(Path file) throws IOException {
+
+        byte[] bytes = Files.readAllBytes(file);
+        if (bytes.length < HEADER + 8)
+            throw new IOException(file + " is not a network file");
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - 8);
+        if (buffer.getLong(bytes.length - 8) != crc.getValue())
+            throw new IOException(file + " is corrupt");
+
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+            throw new IOException(file + " is not a version " + VERSION + " network file");
+
+        int rows = buffer.getInt(8);
+        int columns = buffer.getInt(12);
+        int transformerSize = buffer.getInt(16);
+        int hidden1 = buffer.getInt(20);
+        int hidden2 = buffer.getInt(24);
+        if (rows < 1 || columns < 1 || rows > 16 || columns > 16 || transformerSize < 1 || transformerSize > MAX_LAYER
+                || hidden1 < 1 || hidden1 > MAX_LAYER || hidden2 < 1 || hidden2 > MAX_LAYER)
+            throw new IOException(file + " has invalid layer sizes");
+
+        long features = 2L * TYPES * rows * columns;
+        long expected = HEADER + 2 * (features + 1) * transformerSize + (long) hidden1 * (2 * transformerSize + 4)
+                + (long) hidden2 * (hidden1 + 4) + hidden2 + 4 + 8;
+        if (bytes.length != expected)
+            throw new IOException(file + " should hold " + expected + " bytes, not " + bytes.length);
+
+        return new Network(buffer);
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+}
@@ -0,0 +1,121 @@
+package chess.engine;
+
+import boardgame.Piece;
+import chess.ChessPiece;
+import chess.Color;
+
+import java.util.List;
+
+// the network's feature transformer output for both sides, kept up to date from the same piece
+// add and remove calls as Evaluation, so a node only pays for the small hidden layers:
+//   input      the side to move's accumulator then the other's, clamped to 0..127
+//   hidden 1-2 clamp((bias + sum of input x weight) >> WEIGHT_SHIFT, 0, 127)
+//   output     (bias + sum of input x weight) / OUTPUT_SCALE, in centipawns for the side to move
+final class NeuralEvaluation {
+
+    private static final int WEIGHT_SHIFT = 6;
+    private static final int OUTPUT_SCALE = 16;
+    private static final int CLAMP = 127;
+
+    private final Network network;
+    private final int squares;
+
+    // indexed by Color ordinal
+    private final short[][] accumulators;
+
+    private final int[] input;
+    private final int[] hidden1;
+    private final int[] hidden2;
+
+    NeuralEvaluation(Network network) {
+
+        this.network = network;
+        this.squares = network.rows * network.columns;
+        this.accumulators = new short[2][network.transformerSize];
+        this.input = new int[2 * network.transformerSize];
+        this.hidden1 = new int[network.hidden1];
+        this.hidden2 = new int[network.hidden2];
+    }
+
+    Network getNetwork() {
+        return network;
+    }
+
+    // rebuilds both accumulators from the pieces, only needed when the network is first set
+    void refresh(List<Piece> pieces) {
+
+        for (Color side : Color.values())
+            System.arraycopy(network.transformerBias, 0, accumulators[side.ordinal()], 0, network.transformerSize);
+
+        for (int i = 0; i < pieces.size(); i++) {
+            ChessPiece p = (ChessPiece) pieces.get(i);
+            this.update(p, p.getPosition().getRow(), p.getPosition().getColumn(), 1);
+        }
+    }
+
+    void update(ChessPiece piece, int row, int column, int delta) {
+
+        short[] weights = network.transformerWeights;
+        int size = network.transformerSize;
+
+        for (Color side : Color.values()) {
+
+            short[] accumulator = accumulators[side.ordinal()];
+            int offset = this.feature(side, piece, row, column) * size;
+            if (delta > 0)
+                for (int i = 0; i < size; i++)
+                    accumulator[i] += weights[offset + i];
+            else
+                for (int i = 0; i < size; i++)
+                    accumulator[i] -= weights[offset + i];
+        }
+    }
+
+    int evaluate(Color sideToMove) {
+
+        int size = network.transformerSize;
+        short[] us = accumulators[sideToMove.ordinal()];
+        short[] them = accumulators[1 - sideToMove.ordinal()];
+        for (int i = 0; i < size; i++) {
+            input[i] = clamp(us[i]);
+            input[size + i] = clamp(them[i]);
+        }
+
+        layer(input, network.hidden1Weights, network.hidden1Bias, hidden1);
+        layer(hidden1, network.hidden2Weights, network.hidden2Bias, hidden2);
+
+        int sum = network.outputBias;
+        for (int i = 0; i < hidden2.length; i++)
+            sum += hidden2[i] * network.outputWeights[i];
+        return sum / OUTPUT_SCALE;
+    }
+
+    // the weights are input-major, a clamped input is often zero and its row is skipped
+    private static void layer(int[] in, byte[] weights, int[] bias, int[] out) {
+
+        System.arraycopy(bias, 0, out, 0, out.length);
+        for (int i = 0; i < in.length; i++) {
+            int value = in[i];
+            if (value == 0)
+                continue;
+            int offset = i * out.length;
+            for (int j = 0; j < out.length; j++)
+                out[j] += value * weights[offset + j];
+        }
+
+        for (int j = 0; j < out.length; j++)
+            out[j] = clamp(out[j] >> WEIGHT_SHIFT);
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(CLAMP, value));
+    }
+
+    // the piece from side's point of view: its own pieces first, rows counted from side's first row
+    private int feature(Color side, ChessPiece piece, int row, int column) {
+
+        int relativeRow = (side == Color.RED) ? network.rows - 1 - row : row;
+        int relation = (piece.getColor() == side) ? 0 : Network.TYPES;
+        return (relation + piece.getType().ordinal()) * squares + relativeRow * network.columns + column;
+    }
+}
@@ -0,0 +1,173 @@
+package chess.engine;
+
+import chess.ChessMatch;
+import chess.Move;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// perft on a fork/join pool: the root moves, and the moves of every node at least SPLIT_DEPTH
+// from the leaves, become tasks on their own copy of the position (copied, not parsed from FEN), and the shallower subtrees are
+// counted sequentially; counts of depth 2 and more are shared between the threads in a table keyed
+// by hash and depth, so transpositions are counted once
+public class ParallelPerft {
+
+    public static final int DEFAULT_HASH = 64;
+
+    private static final int SPLIT_DEPTH = 5;
+    private static final int CACHE_DEPTH = 2;
+
+    private final ForkJoinPool pool;
+
+    // each entry is two longs, the count with the depth in the top byte and the hash xor-ed with it,
+    // so a torn write from another thread reads back as a miss
+    private final long[] keys;
+    private final long[] counts;
+    private final int mask;
+
+    public ParallelPerft(int threads, int megabytes) {
+
+        this.pool = new ForkJoinPool(Math.max(1, threads));
+
+        long entries = Math.max(1L, (long) megabytes * 1024 * 1024 / 16);
+        int size = Integer.highestOneBit((int) Math.min(entries, 1 << 30));
+        this.keys = new long[size];
+        this.counts = new long[size];
+        this.mask = size - 1;
+    }
+
+    public long perft(ChessMatch chessMatch, int depth) {
+        return pool.invoke(new Node(new ChessMatch(chessMatch), depth));
+    }
+
+    // prints the node count below each root move in move generation order, as Perft.divide
+    public long divide(ChessMatch chessMatch, int depth, PrintStream out) {
+
+        if (depth < 1)
+            return 1;
+
+        int[] list = new int[MoveOrderer.MAX_MOVES];
+        int n = chessMatch.generateMoves(list);
+        List<Integer> moves = new ArrayList<>();
+        List<Node> tasks = new ArrayList<>();
+
+        for (int i = 0; i < n; i++) {
+            if (!chessMatch.makeMove(list[i]))
+                continue;
+            moves.add(list[i]);
+            tasks.add(new Node(new ChessMatch(chessMatch), depth - 1));
+            chessMatch.unmakeMove();
+        }
+
+        for (Node task : tasks)
+            pool.execute(task);
+
+        long nodes = 0;
+        for (int i = 0; i < tasks.size(); i++) {
+            long count = tasks.get(i).join();
+            out.println(Move.toString(moves.get(i), chessMatch.getRows()) + ": " + count);
+            nodes += count;
+        }
+
+        return nodes;
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private long probe(long hash, int depth) {
+
+        int index = index(hash, depth);
+        long c = counts[index];
+        return ((keys[index] ^ c) == hash && (int) (c >>> 56) == depth) ? c & 0x00FF_FFFF_FFFF_FFFFL : -1;
+    }
+
+    private void store(long hash, int depth, long count) {
+
+        int index = index(hash, depth);
+        long c = count | (long) depth << 56;
+        counts[index] = c;
+        keys[index] = hash ^ c;
+    }
+
+    // the depths of one position go to different slots
+    private int index(long hash, int depth) {
+        return (int) (hash ^ depth * 0x9E37_79B9_7F4A_7C15L) & mask;
+    }
+
+    private final class Node extends RecursiveTask<Long> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final ChessMatch chessMatch;
+        private final int depth;
+
+        Node(ChessMatch chessMatch, int depth) {
+            this.chessMatch = chessMatch;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Long compute() {
+
+            if (depth < SPLIT_DEPTH)
+                return this.count(new int[depth + 1][MoveOrderer.MAX_MOVES], depth);
+
+            long hash = chessMatch.getHash();
+            long cached = probe(hash, depth);
+            if (cached >= 0)
+                return cached;
+
+            int[] list = new int[MoveOrderer.MAX_MOVES];
+            int n = chessMatch.generateMoves(list);
+            List<Node> children = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                if (!chessMatch.makeMove(list[i]))
+                    continue;
+                children.add(new Node(new ChessMatch(chessMatch), depth - 1));
+                chessMatch.unmakeMove();
+            }
+
+            long nodes = 0;
+            for (Node child : invokeAll(children))
+                nodes += child.join();
+
+            store(hash, depth, nodes);
+            return nodes;
+        }
+
+        private long count(int[][] moves, int depth) {
+
+            if (depth == 0)
+                return 1;
+
+            long hash = chessMatch.getHash();
+            if (depth >= CACHE_DEPTH) {
+                long cached = probe(hash, depth);
+                if (cached >= 0)
+                    return cached;
+            }
+
+            int[] list = moves[depth];
+            int n = chessMatch.generateMoves(list);
+            long nodes = 0;
+
+            for (int i = 0; i < n; i++) {
+
+                if (!chessMatch.makeMove(list[i]))
+                    continue;
+
+                nodes += (depth == 1) ? 1 : this.count(moves, depth - 1);
+                chessMatch.unmakeMove();
+            }
+
+            if (depth >= CACHE_DEPTH)
+                store(hash, depth, nodes);
+            return nodes;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package chess.engine;
+
+import chess.Color;
+
+import java.util.Arrays;
+
+// doubled, isolated and passed pawns, RED minus BLUE: the pawns are added one by one, then scored
+final class PawnStructure {
+
+    private static final int DOUBLED_MG = -10;
+    private static final int DOUBLED_EG = -20;
+    private static final int ISOLATED_MG = -10;
+    private static final int ISOLATED_EG = -15;
+
+    // by how far the pawn has come, scaled onto the ranks of an 8x8 board
+    private static final int[] PASSED_MG = {0, 5, 10, 15, 25, 40, 60, 0};
+    private static final int[] PASSED_EG = {0, 10, 20, 30, 50, 80, 120, 0};
+
+    private final int rows;
+    private final int[][] counts;
+    // per file, shifted by one so the edge files need no checks: the BLUE pawn nearest row 0
+    // and the RED pawn nearest the last row, the only ones that can stop a pawn of the other side
+    private final int[] blueLowest;
+    private final int[] redHighest;
+
+    private final int[] pawnRows;
+    private final int[] pawnFiles;
+    private final boolean[] pawnRed;
+    private int size;
+
+    int mg;
+    int eg;
+
+    PawnStructure(int rows, int columns) {
+
+        this.rows = rows;
+        this.counts = new int[2][columns + 2];
+        this.blueLowest = new int[columns + 2];
+        this.redHighest = new int[columns + 2];
+        this.pawnRows = new int[rows * columns];
+        this.pawnFiles = new int[rows * columns];
+        this.pawnRed = new boolean[rows * columns];
+        this.clear();
+    }
+
+    void clear() {
+
+        size = 0;
+        Arrays.fill(counts[0], 0);
+        Arrays.fill(counts[1], 0);
+        Arrays.fill(blueLowest, rows);
+        Arrays.fill(redHighest, -1);
+    }
+
+    void add(Color color, int row, int column) {
+
+        boolean red = color == Color.RED;
+        int file = column + 1;
+        pawnRows[size] = row;
+        pawnFiles[size] = file;
+        pawnRed[size++] = red;
+
+        counts[color.ordinal()][file]++;
+        if (red)
+            redHighest[file] = Math.max(redHighest[file], row);
+        else
+            blueLowest[file] = Math.min(blueLowest[file], row);
+    }
+
+    void score() {
+
+        mg = 0;
+        eg = 0;
+
+        for (Color color : Color.values()) {
+            int[] files = counts[color.ordinal()];
+            int sign = (color == Color.RED) ? 1 : -1;
+            for (int file = 1; file < files.length - 1; file++)
+                if (files[file] > 1) {
+                    mg += sign * (files[file] - 1) * DOUBLED_MG;
+                    eg += sign * (files[file] - 1) * DOUBLED_EG;
+                }
+        }
+
+        int[] red = counts[Color.RED.ordinal()];
+        int[] blue = counts[Color.BLUE.ordinal()];
+
+        for (int i = 0; i < size; i++) {
+
+            int row = pawnRows[i];
+            int file = pawnFiles[i];
+            int sign = pawnRed[i] ? 1 : -1;
+            int[] own = pawnRed[i] ? red : blue;
+
+            if (own[file - 1] == 0 && own[file + 1] == 0) {
+                mg += sign * ISOLATED_MG;
+                eg += sign * ISOLATED_EG;
+            }
+
+            // RED moves towards row 0, so it is passed when no BLUE pawn of its own or a
+            // neighbouring file stands on a smaller row, and the other way round for BLUE
+            boolean passed = pawnRed[i]
+                    ? Math.min(blueLowest[file], Math.min(blueLowest[file - 1], blueLowest[file + 1])) >= row
+                    : Math.max(redHighest[file], Math.max(redHighest[file - 1], redHighest[file + 1])) <= row;
+            if (passed) {
+                int advance = pawnRed[i] ? rows - 1 - row : row;
+                int rank = Math.min(7, advance * 7 / (rows - 1));
+                mg += sign * PASSED_MG[rank];
+                eg += sign * PASSED_EG[rank];
+            }
+        }
+    }
+}
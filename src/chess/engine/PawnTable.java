@@ -0,0 +1,37 @@
+package chess.engine;
+
+// pawn structure scores by pawn key; the key of a board without pawns is 0, which an empty
+// slot already answers with the right score of 0
+final class PawnTable {
+
+    private static final int SIZE = 1 << 12;
+    private static final int MASK = SIZE - 1;
+
+    private final long[] keys = new long[SIZE];
+    private final int[] mg = new int[SIZE];
+    private final int[] eg = new int[SIZE];
+
+    // the index of the entry for the key, -1 when it is not in the table
+    int probe(long key) {
+
+        int index = (int) key & MASK;
+        return (keys[index] == key) ? index : -1;
+    }
+
+    int store(long key, int mgScore, int egScore) {
+
+        int index = (int) key & MASK;
+        keys[index] = key;
+        mg[index] = mgScore;
+        eg[index] = egScore;
+        return index;
+    }
+
+    int mg(int index) {
+        return mg[index];
+    }
+
+    int eg(int index) {
+        return eg[index];
+    }
+}
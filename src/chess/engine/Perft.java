@@ -0,0 +1,58 @@
+package chess.engine;
+
+import chess.ChessMatch;
+import chess.Move;
+
+import java.io.PrintStream;
+
+public class Perft {
+
+    private final int[][] moves = new int[MoveOrderer.MAX_PLY][MoveOrderer.MAX_MOVES];
+
+    public long perft(ChessMatch chessMatch, int depth) {
+
+        if (depth == 0)
+            return 1;
+
+        int[] list = moves[depth];
+        int n = chessMatch.generateMoves(list);
+        long nodes = 0;
+
+        for (int i = 0; i < n; i++) {
+
+            if (!chessMatch.makeMove(list[i]))
+                continue;
+
+            nodes += (depth == 1) ? 1 : this.perft(chessMatch, depth - 1);
+            chessMatch.unmakeMove();
+        }
+
+        return nodes;
+    }
+
+    // prints the node count below each root move, as in "e2e4: 9771"
+    public long divide(ChessMatch chessMatch, int depth, PrintStream out) {
+
+        if (depth < 1)
+            return 1;
+
+        int[] list = moves[0];
+        int n = chessMatch.generateMoves(list);
+        long nodes = 0;
+
+        for (int i = 0; i < n; i++) {
+
+            int move = list[i];
+            if (!chessMatch.makeMove(move))
+                continue;
+
+            long count = this.perft(chessMatch, depth - 1);
+            chessMatch.unmakeMove();
+
+            out.println(Move.toString(move, chessMatch.getRows()) + ": " + count);
+            nodes += count;
+        }
+
+        return nodes;
+    }
+}
@@ -0,0 +1,374 @@
+package chess.engine;
+
+import chess.ChessMatch;
+import chess.Move;
+import chess.metrics.Metrics;
+import chess.metrics.SearchIterationEvent;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class Search {
+
+    public static final int INFINITY = 32000;
+    public static final int MATE = 31000;
+
+    private static final int MAX_PLY = MoveOrderer.MAX_PLY;
+
+    private final TranspositionTable table;
+    private final MoveOrderer orderer;
+    private final StaticExchange exchange;
+
+    private final int[][] pv = new int[MAX_PLY + 1][MAX_PLY + 1];
+    private final int[] pvLength = new int[MAX_PLY + 1];
+
+    private boolean quiescence = true;
+
+    private volatile boolean stopped;
+    private AtomicBoolean stopSignal;
+    private SearchListener listener;
+    private long nodes;
+    private long nodeLimit;
+    private long deadline;
+
+    private int bestMove;
+    private int bestScore;
+    private int completedDepth;
+    private int[] principalVariation = new int[0];
+
+    // root moves left out of the search, so multi-PV analysis can ask for the next best line
+    private int[] excluded = new int[0];
+    private int excludedCount;
+
+    public Search() {
+        this(new TranspositionTable(16));
+    }
+
+    public Search(TranspositionTable table) {
+        this.table = table;
+        this.orderer = new MoveOrderer();
+        this.exchange = new StaticExchange();
+    }
+
+    public int search(ChessMatch chessMatch, int maxDepth) {
+        return this.search(chessMatch, maxDepth, 0, 0);
+    }
+
+    // iterative deepening, a zero node or time limit means no limit
+    public int search(ChessMatch chessMatch, int maxDepth, long nodeLimit, long timeLimitMillis) {
+
+        this.stopped = false;
+        this.nodes = 0;
+        this.nodeLimit = nodeLimit;
+        this.deadline = (timeLimitMillis > 0) ? System.currentTimeMillis() + timeLimitMillis : 0;
+        this.bestMove = Move.NONE;
+        this.bestScore = 0;
+        this.completedDepth = 0;
+        this.principalVariation = new int[0];
+        this.orderer.age();
+
+        for (int depth = 1; depth <= Math.min(maxDepth, MAX_PLY - 1); depth++) {
+
+            SearchIterationEvent event = new SearchIterationEvent();
+            long nodesBefore = nodes;
+            event.begin();
+
+            int score = this.alphaBeta(chessMatch, depth, -INFINITY, INFINITY, 0);
+
+            if (event.shouldCommit()) {
+                event.matchId = chessMatch.getId();
+                event.ply = chessMatch.getTurn();
+                event.depth = depth;
+                event.score = score;
+                event.nodes = nodes - nodesBefore;
+                event.completed = !this.stopped;
+                if (pvLength[0] > 0)
+                    event.bestMove = Move.toString(pv[0][0], chessMatch.getRows());
+                event.commit();
+            }
+            if (this.stopped && depth > 1)
+                break;
+
+            if (pvLength[0] > 0) {
+                this.bestMove = pv[0][0];
+                this.bestScore = score;
+                this.completedDepth = depth;
+                this.principalVariation = Arrays.copyOf(pv[0], pvLength[0]);
+
+                if (this.listener != null && !this.stopped)
+                    this.listener.iterationCompleted(depth, score, nodes, principalVariation);
+            }
+
+            if (this.stopped || Math.abs(score) >= MATE - MAX_PLY)
+                break;
+        }
+
+        Metrics.searchNodes(this.nodes);
+        return this.bestMove;
+    }
+
+    // one iteration at a fixed depth for callers driving the deepening themselves; the node count keeps
+    // growing across calls and the first excludedCount moves of excluded are not played at the root
+    public int searchIteration(ChessMatch chessMatch, int depth, int[] excluded, int excludedCount) {
+
+        this.stopped = false;
+        this.excluded = excluded;
+        this.excludedCount = excludedCount;
+        int score;
+        try {
+            score = this.alphaBeta(chessMatch, Math.min(depth, MAX_PLY - 1), -INFINITY, INFINITY, 0);
+        } finally {
+            this.excludedCount = 0;
+        }
+
+        if (this.stopped || pvLength[0] == 0)
+            return Move.NONE;
+
+        this.bestMove = pv[0][0];
+        this.bestScore = score;
+        this.completedDepth = depth;
+        this.principalVariation = Arrays.copyOf(pv[0], pvLength[0]);
+        return this.bestMove;
+    }
+
+    private boolean isExcluded(int move) {
+
+        for (int i = 0; i < excludedCount; i++)
+            if (excluded[i] == move)
+                return true;
+        return false;
+    }
+
+    private int alphaBeta(ChessMatch chessMatch, int depth, int alpha, int beta, int ply) {
+
+        pvLength[ply] = ply;
+
+        if ((nodes & 1023) == 0)
+            this.checkLimits();
+        if (this.stopped)
+            return 0;
+
+        if (ply > 0 && (chessMatch.repetitionCount() > 0 || chessMatch.getHalfMoveClock() >= 100))
+            return 0;
+
+        boolean inCheck = chessMatch.getCheck();
+        if (inCheck)
+            depth++;
+
+        if (depth <= 0 || ply >= MAX_PLY - 1)
+            return this.quiescence ? this.quiescence(chessMatch, alpha, beta, ply) : chessMatch.evaluate();
+
+        long hash = chessMatch.getHash();
+        long entry = table.probe(hash);
+        int hashMove = Move.NONE;
+
+        if (entry != 0) {
+
+            hashMove = TranspositionTable.move(entry);
+            if (ply > 0 && TranspositionTable.depth(entry) >= depth) {
+
+                int score = fromTable(TranspositionTable.score(entry), ply);
+                int flag = TranspositionTable.flag(entry);
+                if (flag == TranspositionTable.EXACT
+                        || (flag == TranspositionTable.LOWER && score >= beta)
+                        || (flag == TranspositionTable.UPPER && score <= alpha))
+                    return score;
+            }
+        }
+
+        int originalAlpha = alpha;
+        int best = -INFINITY;
+        int bestMove = Move.NONE;
+        int legal = 0;
+
+        orderer.prepare(chessMatch, ply, hashMove);
+        for (int move = orderer.next(ply); move != Move.NONE; move = orderer.next(ply)) {
+
+            if (ply == 0 && excludedCount > 0 && this.isExcluded(move))
+                continue;
+
+            if (!chessMatch.makeMove(move))
+                continue;
+
+            legal++;
+            nodes++;
+            int score = -this.alphaBeta(chessMatch, depth - 1, -beta, -alpha, ply + 1);
+            chessMatch.unmakeMove();
+
+            if (this.stopped)
+                return 0;
+
+            if (score > best) {
+
+                best = score;
+                bestMove = move;
+
+                if (score > alpha) {
+
+                    alpha = score;
+                    pv[ply][ply] = move;
+                    System.arraycopy(pv[ply + 1], ply + 1, pv[ply], ply + 1, pvLength[ply + 1] - ply - 1);
+                    pvLength[ply] = pvLength[ply + 1];
+
+                    if (alpha >= beta) {
+                        if (!MoveOrderer.isCapture(chessMatch, move) && !Move.isPromotion(move))
+                            orderer.cutoff(chessMatch, ply, move, depth);
+                        break;
+                    }
+                }
+            }
+        }
+
+        if (legal == 0)
+            return inCheck ? -MATE + ply : 0;
+
+        // a root searched without some of its moves has no score worth keeping
+        if (ply > 0 || excludedCount == 0) {
+            int flag = (best >= beta) ? TranspositionTable.LOWER
+                    : (best > originalAlpha) ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+            table.store(hash, bestMove, toTable(best, ply), depth, flag);
+        }
+
+        return best;
+    }
+
+    // extends the leaves through captures until the position is quiet
+    private int quiescence(ChessMatch chessMatch, int alpha, int beta, int ply) {
+
+        pvLength[ply] = ply;
+
+        if ((nodes & 1023) == 0)
+            this.checkLimits();
+        if (this.stopped)
+            return 0;
+
+        boolean inCheck = chessMatch.getCheck();
+        if (ply >= MAX_PLY - 1)
+            return chessMatch.evaluate();
+
+        int best = -INFINITY;
+        if (!inCheck) {
+
+            best = chessMatch.evaluate();
+            if (best >= beta)
+                return best;
+            if (best > alpha)
+                alpha = best;
+
+            orderer.prepareCaptures(chessMatch, ply);
+        } else
+            orderer.prepare(chessMatch, ply, Move.NONE);
+
+        int legal = 0;
+        for (int move = orderer.next(ply); move != Move.NONE; move = orderer.next(ply)) {
+
+            // losing captures are not worth resolving
+            if (!inCheck && exchange.evaluate(chessMatch, move) < 0)
+                continue;
+
+            if (!chessMatch.makeMove(move))
+                continue;
+
+            legal++;
+            nodes++;
+            int score = -this.quiescence(chessMatch, -beta, -alpha, ply + 1);
+            chessMatch.unmakeMove();
+
+            if (this.stopped)
+                return 0;
+
+            if (score > best) {
+
+                best = score;
+                if (score > alpha) {
+
+                    alpha = score;
+                    pv[ply][ply] = move;
+                    System.arraycopy(pv[ply + 1], ply + 1, pv[ply], ply + 1, pvLength[ply + 1] - ply - 1);
+                    pvLength[ply] = pvLength[ply + 1];
+
+                    if (alpha >= beta)
+                        break;
+                }
+            }
+        }
+
+        if (inCheck && legal == 0)
+            return -MATE + ply;
+
+        return best;
+    }
+
+    private void checkLimits() {
+
+        if (nodeLimit > 0 && nodes >= nodeLimit)
+            this.stopped = true;
+
+        if (deadline > 0 && System.currentTimeMillis() >= deadline)
+            this.stopped = true;
+
+        if (stopSignal != null && stopSignal.get())
+            this.stopped = true;
+    }
+
+    // mate scores are stored relative to the node so they stay valid at other plies
+    private static int toTable(int score, int ply) {
+
+        if (score >= MATE - MAX_PLY)
+            return score + ply;
+        if (score <= -MATE + MAX_PLY)
+            return score - ply;
+        return score;
+    }
+
+    private static int fromTable(int score, int ply) {
+
+        if (score >= MATE - MAX_PLY)
+            return score - ply;
+        if (score <= -MATE + MAX_PLY)
+            return score + ply;
+        return score;
+    }
+
+    public void stop() {
+        this.stopped = true;
+    }
+
+    // lets several searches be stopped together, also before they have started
+    public void setStopSignal(AtomicBoolean stopSignal) {
+        this.stopSignal = stopSignal;
+    }
+
+    public void setQuiescence(boolean quiescence) {
+        this.quiescence = quiescence;
+    }
+
+    public void setListener(SearchListener listener) {
+        this.listener = listener;
+    }
+
+    public void clear() {
+        this.table.clear();
+        this.orderer.clear();
+    }
+
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    public int getScore() {
+        return bestScore;
+    }
+
+    public int getDepth() {
+        return completedDepth;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public int[] getPrincipalVariation() {
+        return principalVariation;
+    }
+}
@@ -0,0 +1,6 @@
+package chess.engine;
+
+public interface SearchListener {
+
+    void iterationCompleted(int depth, int score, long nodes, int[] principalVariation);
+}
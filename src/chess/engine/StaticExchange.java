@@ -0,0 +1,85 @@
+package chess.engine;
+
+import chess.ChessMatch;
+import chess.ChessPiece;
+import chess.Color;
+import chess.Move;
+import chess.PieceType;
+
+public class StaticExchange {
+
+    private static final int KING_VALUE = 20000;
+
+    private final boolean[] removed = new boolean[256];
+    private final int[] attackers = new int[32];
+    private final int[] gain = new int[32];
+    private final int[] touched = new int[32];
+
+    // material balance of the capture sequence started by move on its target square, assuming both
+    // sides keep recapturing with their least valuable attacker while it pays off
+    public int evaluate(ChessMatch chessMatch, int move) {
+
+        int row = Move.targetRow(move);
+        int column = Move.targetColumn(move);
+        ChessPiece attacker = chessMatch.piece(Move.sourceRow(move), Move.sourceColumn(move));
+        ChessPiece victim = chessMatch.piece(row, column);
+
+        // #specialmove en passant
+        int victimValue = (victim != null) ? value(victim.getType())
+                : (attacker.getType() == PieceType.PAWN && Move.sourceColumn(move) != column) ? value(PieceType.PAWN) : 0;
+
+        int onSquare = value(attacker.getType());
+        PieceType promotion = Move.promotion(move);
+        if (promotion != null) {
+            victimValue += value(promotion) - value(PieceType.PAWN);
+            onSquare = value(promotion);
+        }
+
+        int touchedCount = 0;
+        touched[touchedCount++] = Move.source(move);
+        removed[Move.source(move)] = true;
+
+        gain[0] = victimValue;
+        Color side = (attacker.getColor() == Color.RED) ? Color.BLUE : Color.RED;
+        int d = 0;
+
+        while (d < gain.length - 1) {
+
+            int count = chessMatch.attackers(row, column, side, removed, attackers);
+            if (count == 0)
+                break;
+
+            int best = attackers[0];
+            int bestValue = value(chessMatch.piece(Move.row(best), Move.column(best)).getType());
+            for (int i = 1; i < count; i++) {
+                int v = value(chessMatch.piece(Move.row(attackers[i]), Move.column(attackers[i])).getType());
+                if (v < bestValue) {
+                    best = attackers[i];
+                    bestValue = v;
+                }
+            }
+
+            d++;
+            gain[d] = onSquare - gain[d - 1];
+            if (Math.max(-gain[d - 1], gain[d]) < 0)
+                break;
+
+            onSquare = bestValue;
+            removed[best] = true;
+            touched[touchedCount++] = best;
+            side = (side == Color.RED) ? Color.BLUE : Color.RED;
+        }
+
+        for (; d > 0; d--)
+            gain[d - 1] = -Math.max(-gain[d - 1], gain[d]);
+
+        for (int i = 0; i < touchedCount; i++)
+            removed[touched[i]] = false;
+
+        return gain[0];
+    }
+
+    private static int value(PieceType type) {
+        return (type == PieceType.KING) ? KING_VALUE : Evaluation.MG_VALUE[type.ordinal()];
+    }
+}
@@ -0,0 +1,75 @@
+package chess.engine;
+
+import java.util.Arrays;
+
+public class TranspositionTable {
+
+    public static final int EXACT = 0;
+    public static final int LOWER = 1;
+    public static final int UPPER = 2;
+
+    // each entry is two longs, the key is stored xor-ed with the data so a torn
+    // write from another thread reads back as a miss instead of a wrong entry
+    private long[] keys;
+    private long[] data;
+    private int mask;
+
+    public TranspositionTable(int megabytes) {
+        this.resize(megabytes);
+    }
+
+    public void resize(int megabytes) {
+
+        long entries = Math.max(1L, (long) megabytes * 1024 * 1024 / 16);
+        int size = Integer.highestOneBit((int) Math.min(entries, 1 << 30));
+
+        this.keys = new long[size];
+        this.data = new long[size];
+        this.mask = size - 1;
+    }
+
+    public void clear() {
+        Arrays.fill(this.keys, 0L);
+        Arrays.fill(this.data, 0L);
+    }
+
+    // returns the packed entry or 0 when there is none
+    public long probe(long hash) {
+
+        int index = (int) hash & mask;
+        long d = data[index];
+        return ((keys[index] ^ d) == hash) ? d : 0L;
+    }
+
+    public void store(long hash, int move, int score, int depth, int flag) {
+
+        int index = (int) hash & mask;
+        long old = data[index];
+        if ((keys[index] ^ old) == hash && depth(old) > depth + 2)
+            return;
+
+        long d = (move & 0xFFFFFFFFL)
+                | ((long) (score & 0xFFFF) << 32)
+                | ((long) (depth & 0xFF) << 48)
+                | ((long) (flag + 1) << 56);
+
+        data[index] = d;
+        keys[index] = hash ^ d;
+    }
+
+    public static int move(long entry) {
+        return (int) entry;
+    }
+
+    public static int score(long entry) {
+        return (short) (entry >>> 32);
+    }
+
+    public static int depth(long entry) {
+        return (int) (entry >>> 48) & 0xFF;
+    }
+
+    public static int flag(long entry) {
+        return (int) (entry >>> 56) - 1;
+    }
+}
@@ -0,0 +1,60 @@
+package chess.engine;
+
+import chess.ChessPiece;
+import chess.Color;
+import chess.Move;
+import chess.PieceType;
+
+import java.util.SplittableRandom;
+
+public final class Zobrist {
+
+    // kinds 0-7 are the piece types, unmoved rooks and kings get their own kinds
+    // so castling rights are part of the key without extra bookkeeping
+    private static final int UNMOVED_ROOK = 8;
+    private static final int UNMOVED_KING = 9;
+    private static final int KINDS = 10;
+    private static final int SQUARES = 256;
+
+    private static final long[] PIECE_KEYS = new long[2 * KINDS * SQUARES];
+    private static final long[] EN_PASSANT_KEYS = new long[16];
+    private static final long SIDE_KEY;
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x5EED_C4E55L);
+        for (int i = 0; i < PIECE_KEYS.length; i++)
+            PIECE_KEYS[i] = random.nextLong();
+        for (int i = 0; i < EN_PASSANT_KEYS.length; i++)
+            EN_PASSANT_KEYS[i] = random.nextLong();
+        SIDE_KEY = random.nextLong();
+    }
+
+    private Zobrist() {
+    }
+
+    public static long piece(ChessPiece piece, int row, int column) {
+
+        int kind = piece.getType().ordinal();
+        if (piece.getMoveCount() == 0) {
+            if (piece.getType() == PieceType.ROOK)
+                kind = UNMOVED_ROOK;
+            else if (piece.getType() == PieceType.KING)
+                kind = UNMOVED_KING;
+        }
+
+        return PIECE_KEYS[(piece.getColor().ordinal() * KINDS + kind) * SQUARES + Move.square(row, column)];
+    }
+
+    // key of the piece kind alone, as if it had moved, for keys that handle castling rights themselves
+    public static long piece(PieceType type, Color color, int row, int column) {
+        return PIECE_KEYS[(color.ordinal() * KINDS + type.ordinal()) * SQUARES + Move.square(row, column)];
+    }
+
+    public static long enPassant(int column) {
+        return EN_PASSANT_KEYS[column];
+    }
+
+    public static long side(Color color) {
+        return (color == Color.BLUE) ? SIDE_KEY : 0L;
+    }
+}
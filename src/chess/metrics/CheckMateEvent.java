@@ -0,0 +1,27 @@
+package chess.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("chess.CheckMateTest")
+@Label("Checkmate Test")
+@Category("Chess")
+@Description("ChessMatch.testCheckMate for one side")
+@StackTrace(false)
+public class CheckMateEvent extends jdk.jfr.Event {
+
+    @Label("Match")
+    public long matchId;
+
+    @Label("Ply")
+    public int ply;
+
+    @Label("Color")
+    public String color;
+
+    @Label("Checkmate")
+    public boolean checkMate;
+}
@@ -0,0 +1,173 @@
+package chess.metrics;
+
+import java.lang.ref.Cleaner;
+import java.util.concurrent.atomic.LongAdder;
+
+// process wide counters, striped so concurrent matches do not contend on one cache line;
+// with -Dchess.metrics=false (or setEnabled(false)) every hook is a single volatile read
+public final class Metrics implements MetricsMXBean {
+
+    private static final Metrics INSTANCE = new Metrics();
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private static volatile boolean enabled = !"false".equals(System.getProperty("chess.metrics"));
+
+    private static final LongAdder POSSIBLE_MOVES = new LongAdder();
+    private static final LongAdder MAKE_MOVE = new LongAdder();
+    private static final LongAdder UNDO_MOVE = new LongAdder();
+    private static final LongAdder TEST_CHECK = new LongAdder();
+    private static final LongAdder TEST_CHECK_MATE = new LongAdder();
+    private static final LongAdder MOVES_PLAYED = new LongAdder();
+    private static final LongAdder ACTIVE_MATCHES = new LongAdder();
+    private static final LongAdder SEARCH_NODES = new LongAdder();
+    private static final LongAdder PAWN_PROBES = new LongAdder();
+    private static final LongAdder PAWN_HITS = new LongAdder();
+
+    private Metrics() {
+    }
+
+    public static Metrics getInstance() {
+        return INSTANCE;
+    }
+
+    public static void possibleMoves() {
+        if (enabled)
+            POSSIBLE_MOVES.increment();
+    }
+
+    public static void makeMove() {
+        if (enabled)
+            MAKE_MOVE.increment();
+    }
+
+    public static void undoMove() {
+        if (enabled)
+            UNDO_MOVE.increment();
+    }
+
+    public static void testCheck() {
+        if (enabled)
+            TEST_CHECK.increment();
+    }
+
+    public static void testCheckMate() {
+        if (enabled)
+            TEST_CHECK_MATE.increment();
+    }
+
+    public static void movePlayed() {
+        if (enabled)
+            MOVES_PLAYED.increment();
+    }
+
+    public static void searchNodes(long nodes) {
+        if (enabled)
+            SEARCH_NODES.add(nodes);
+    }
+
+    public static void pawnProbe(boolean hit) {
+        if (enabled) {
+            PAWN_PROBES.increment();
+            if (hit)
+                PAWN_HITS.increment();
+        }
+    }
+
+    // the match counts as active until it ends (clean() on the returned handle) or is garbage collected
+    public static Cleaner.Cleanable matchStarted(Object match) {
+
+        if (!enabled)
+            return null;
+
+        ACTIVE_MATCHES.increment();
+        return CLEANER.register(match, ACTIVE_MATCHES::decrement);
+    }
+
+    public static String dump() {
+
+        return "possibleMoves=" + POSSIBLE_MOVES.sum()
+                + " makeMove=" + MAKE_MOVE.sum()
+                + " undoMove=" + UNDO_MOVE.sum()
+                + " testCheck=" + TEST_CHECK.sum()
+                + " testCheckMate=" + TEST_CHECK_MATE.sum()
+                + " movesPlayed=" + MOVES_PLAYED.sum()
+                + " activeMatches=" + ACTIVE_MATCHES.sum()
+                + " searchNodes=" + SEARCH_NODES.sum()
+                + " pawnProbes=" + PAWN_PROBES.sum()
+                + " pawnHits=" + PAWN_HITS.sum();
+    }
+
+    @Override
+    public long getPossibleMovesCalls() {
+        return POSSIBLE_MOVES.sum();
+    }
+
+    @Override
+    public long getMakeMoveCalls() {
+        return MAKE_MOVE.sum();
+    }
+
+    @Override
+    public long getUndoMoveCalls() {
+        return UNDO_MOVE.sum();
+    }
+
+    @Override
+    public long getTestCheckCalls() {
+        return TEST_CHECK.sum();
+    }
+
+    @Override
+    public long getTestCheckMateCalls() {
+        return TEST_CHECK_MATE.sum();
+    }
+
+    @Override
+    public long getMovesPlayed() {
+        return MOVES_PLAYED.sum();
+    }
+
+    @Override
+    public long getActiveMatches() {
+        return ACTIVE_MATCHES.sum();
+    }
+
+    @Override
+    public long getSearchNodes() {
+        return SEARCH_NODES.sum();
+    }
+
+    @Override
+    public long getPawnProbes() {
+        return PAWN_PROBES.sum();
+    }
+
+    @Override
+    public long getPawnHits() {
+        return PAWN_HITS.sum();
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        Metrics.enabled = enabled;
+    }
+
+    // the active matches gauge is left alone, it is not a counter
+    @Override
+    public void reset() {
+        POSSIBLE_MOVES.reset();
+        MAKE_MOVE.reset();
+        UNDO_MOVE.reset();
+        TEST_CHECK.reset();
+        TEST_CHECK_MATE.reset();
+        MOVES_PLAYED.reset();
+        SEARCH_NODES.reset();
+        PAWN_PROBES.reset();
+        PAWN_HITS.reset();
+    }
+}
@@ -0,0 +1,30 @@
+package chess.metrics;
+
+public interface MetricsMXBean {
+
+    long getPossibleMovesCalls();
+
+    long getMakeMoveCalls();
+
+    long getUndoMoveCalls();
+
+    long getTestCheckCalls();
+
+    long getTestCheckMateCalls();
+
+    long getMovesPlayed();
+
+    long getActiveMatches();
+
+    long getSearchNodes();
+
+    long getPawnProbes();
+
+    long getPawnHits();
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    void reset();
+}
@@ -0,0 +1,63 @@
+package chess.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public final class MetricsReporter {
+
+    public static final String OBJECT_NAME = "chess:type=Metrics";
+
+    private static ScheduledExecutorService dumper;
+
+    private MetricsReporter() {
+    }
+
+    // registers the MBean and, when -Dchess.metrics.dump=<seconds> is set, dumps the counters to stderr
+    public static void start() {
+
+        register();
+
+        long seconds = Long.getLong("chess.metrics.dump", 0L);
+        if (seconds > 0)
+            startDump(System.err, seconds);
+    }
+
+    public static synchronized void register() {
+
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name))
+                server.registerMBean(Metrics.getInstance(), name);
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not register " + OBJECT_NAME, e);
+        }
+    }
+
+    public static synchronized void startDump(PrintStream out, long seconds) {
+
+        if (dumper != null)
+            return;
+
+        dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "metrics-dump");
+            t.setDaemon(true);
+            return t;
+        });
+        dumper.scheduleAtFixedRate(() -> out.println("[metrics] " + Metrics.dump()), seconds, seconds, TimeUnit.SECONDS);
+    }
+
+    public static synchronized void stopDump() {
+
+        if (dumper != null) {
+            dumper.shutdownNow();
+            dumper = null;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package chess.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// JDK Flight Recorder events cost one enabled check while no recording asks for them;
+// their duration is the time between begin() and commit()
+@Name("chess.Move")
+@Label("Move")
+@Category("Chess")
+@Description("ChessMatch.performChessMove, including the check and checkmate tests")
+@StackTrace(false)
+public class MoveEvent extends jdk.jfr.Event {
+
+    @Label("Match")
+    public long matchId;
+
+    @Label("Ply")
+    public int ply;
+
+    @Label("Piece")
+    public String piece;
+
+    @Label("Move")
+    public String move;
+
+    @Label("Rejected")
+    public boolean rejected;
+
+    @Label("Reason")
+    public String reason;
+}
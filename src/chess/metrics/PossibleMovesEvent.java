@@ -0,0 +1,33 @@
+package chess.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("chess.PossibleMoves")
+@Label("Possible Moves")
+@Category("Chess")
+@Description("ChessMatch.possibleMoves for one piece")
+@StackTrace(false)
+public class PossibleMovesEvent extends jdk.jfr.Event {
+
+    @Label("Match")
+    public long matchId;
+
+    @Label("Ply")
+    public int ply;
+
+    @Label("Piece")
+    public String piece;
+
+    @Label("Square")
+    public String square;
+
+    @Label("Rejected")
+    public boolean rejected;
+
+    @Label("Reason")
+    public String reason;
+}
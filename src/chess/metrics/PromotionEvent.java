@@ -0,0 +1,30 @@
+package chess.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("chess.Promotion")
+@Label("Promotion")
+@Category("Chess")
+@Description("ChessMatch.replacePromotedPiece")
+@StackTrace(false)
+public class PromotionEvent extends jdk.jfr.Event {
+
+    @Label("Match")
+    public long matchId;
+
+    @Label("Ply")
+    public int ply;
+
+    @Label("Piece")
+    public String piece;
+
+    @Label("Rejected")
+    public boolean rejected;
+
+    @Label("Reason")
+    public String reason;
+}
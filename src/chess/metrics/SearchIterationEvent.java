@@ -0,0 +1,36 @@
+package chess.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("chess.SearchIteration")
+@Label("Search Iteration")
+@Category("Chess")
+@Description("One depth of the engine's iterative deepening")
+@StackTrace(false)
+public class SearchIterationEvent extends jdk.jfr.Event {
+
+    @Label("Match")
+    public long matchId;
+
+    @Label("Ply")
+    public int ply;
+
+    @Label("Depth")
+    public int depth;
+
+    @Label("Score")
+    public int score;
+
+    @Label("Nodes")
+    public long nodes;
+
+    @Label("Best Move")
+    public String bestMove;
+
+    @Label("Completed")
+    public boolean completed;
+}
@@ -0,0 +1,22 @@
+package chess.pieces;
+
+import chess.ChessPiece;
+import chess.Color;
+import chess.PieceType;
+
+public class Archbishop extends ChessPiece {
+
+    public Archbishop(Color color) {
+        super(color);
+    }
+
+    @Override
+    public PieceType getType() {
+        return PieceType.ARCHBISHOP;
+    }
+
+    @Override
+    public String toString() {
+        return "A";
+    }
+}
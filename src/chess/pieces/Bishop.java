@@ -1,63 +1,22 @@
 package chess.pieces;
 
-import boardgame.Board;
-import boardgame.Position;
 import chess.ChessPiece;
 import chess.Color;
+import chess.PieceType;
 
 public class Bishop extends ChessPiece {
 
-    public Bishop(Board board, Color color) {
-        super(board, color);
+    public Bishop(Color color) {
+        super(color);
     }
 
     @Override
-    public String toString() {
-        return "B";
+    public PieceType getType() {
+        return PieceType.BISHOP;
     }
 
     @Override
-    public boolean[][] possibleMoves() {
-
-        boolean[][] matrix = new boolean[getBoard().getRows()][getBoard().getColumns()];
-        Position p = new Position(0, 0);
-
-        // nw
-        p.setValues(position.getRow() - 1, position.getColumn() - 1);
-        while (getBoard().positionExists(p) && !getBoard().thereIsAPiece(p)) {
-            matrix[p.getRow()][p.getColumn()] = true;
-            p.setValues(p.getRow() - 1, p.getColumn() - 1);
-        }
-        if (getBoard().positionExists(p) && isThereOpponentPiece(p))
-            matrix[p.getRow()][p.getColumn()] = true;
-
-        // ne
-        p.setValues(position.getRow() - 1, position.getColumn() + 1);
-        while (getBoard().positionExists(p) && !getBoard().thereIsAPiece(p)) {
-            matrix[p.getRow()][p.getColumn()] = true;
-            p.setValues(p.getRow() - 1, p.getColumn() + 1);
-        }
-        if (getBoard().positionExists(p) && isThereOpponentPiece(p))
-            matrix[p.getRow()][p.getColumn()] = true;
-
-        // se
-        p.setValues(position.getRow() + 1, position.getColumn() + 1);
-        while (getBoard().positionExists(p) && !getBoard().thereIsAPiece(p)) {
-            matrix[p.getRow()][p.getColumn()] = true;
-            p.setValues(p.getRow() + 1, p.getColumn() + 1);
-        }
-        if (getBoard().positionExists(p) && isThereOpponentPiece(p))
-            matrix[p.getRow()][p.getColumn()] = true;
-
-        // sw
-        p.setValues(position.getRow() + 1, position.getColumn() - 1);
-        while (getBoard().positionExists(p) && !getBoard().thereIsAPiece(p)) {
-            matrix[p.getRow()][p.getColumn()] = true;
-            p.setValues(p.getRow() + 1, p.getColumn() - 1);
-        }
-        if (getBoard().positionExists(p) && isThereOpponentPiece(p))
-            matrix[p.getRow()][p.getColumn()] = true;
-
-        return matrix;
+    public String toString() {
+        return "B";
     }
 }
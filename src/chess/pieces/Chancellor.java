@@ -0,0 +1,22 @@
+package chess.pieces;
+
+import chess.ChessPiece;
+import chess.Color;
+import chess.PieceType;
+
+public class Chancellor extends ChessPiece {
+
+    public Chancellor(Color color) {
+        super(color);
+    }
+
+    @Override
+    public PieceType getType() {
+        return PieceType.CHANCELLOR;
+    }
+
+    @Override
+    public String toString() {
+        return "C";
+    }
+}
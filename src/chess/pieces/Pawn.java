@@ -1,95 +1,22 @@
 package chess.pieces;
 
-import boardgame.Board;
-import boardgame.Position;
-import chess.ChessMatch;
 import chess.ChessPiece;
 import chess.Color;
+import chess.PieceType;
 
 public class Pawn extends ChessPiece {
 
-    private ChessMatch chessMatch;
-
-    public Pawn(Board board, Color color, ChessMatch chessMatch) {
-        super(board, color);
-        this.chessMatch = chessMatch;
+    public Pawn(Color color) {
+        super(color);
     }
 
     @Override
-    public String toString() {
-        return "P";
+    public PieceType getType() {
+        return PieceType.PAWN;
     }
 
     @Override
-    public boolean[][] possibleMoves() {
-
-        boolean[][] matrix = new boolean[getBoard().getRows()][getBoard().getColumns()];
-        Position p = new Position(0, 0);
-
-        if (getColor() == Color.RED) {
-
-            p.setValues(position.getRow() - 1, position.getColumn());
-            if (getBoard().positionExists(p) && !getBoard().thereIsAPiece(p))
-                matrix[p.getRow()][p.getColumn()] = true;
-
-            p.setValues(position.getRow() - 2, position.getColumn());
-            Position p2 = new Position(position.getRow() - 1, position.getColumn());
-            if (getBoard().positionExists(p) && !getBoard().thereIsAPiece(p) && getMoveCount() == 0 && !getBoard().thereIsAPiece(p2))
-                matrix[p.getRow()][p.getColumn()] = true;
-
-            p.setValues(position.getRow() - 1, position.getColumn() - 1);
-            if (getBoard().positionExists(p) && isThereOpponentPiece(p))
-                matrix[p.getRow()][p.getColumn()] = true;
-
-            p.setValues(position.getRow() - 1, position.getColumn() + 1);
-            if (getBoard().positionExists(p) && isThereOpponentPiece(p))
-                matrix[p.getRow()][p.getColumn()] = true;
-
-            // #specialmove en passant red
-            if (position.getRow() == 3) {
-
-                Position left = new Position(position.getRow(), position.getColumn() - 1);
-                if (getBoard().positionExists(left) && isThereOpponentPiece(left) && getBoard().piece(left) == chessMatch.getEnPassantVulnerable())
-                    matrix[left.getRow() - 1][left.getColumn()] = true;
-
-                Position right = new Position(position.getRow(), position.getColumn() + 1);
-                if (getBoard().positionExists(right) && isThereOpponentPiece(right) && getBoard().piece(right) == chessMatch.getEnPassantVulnerable())
-                    matrix[right.getRow() - 1][right.getColumn()] = true;
-            }
-
-        } else {
-
-
-            p.setValues(position.getRow() + 1, position.getColumn());
-            if (getBoard().positionExists(p) && !getBoard().thereIsAPiece(p))
-                matrix[p.getRow()][p.getColumn()] = true;
-
-            p.setValues(position.getRow() + 2, position.getColumn());
-            Position p2 = new Position(position.getRow() + 1, position.getColumn());
-            if (getBoard().positionExists(p) && !getBoard().thereIsAPiece(p) && getMoveCount() == 0 && !getBoard().thereIsAPiece(p2))
-                matrix[p.getRow()][p.getColumn()] = true;
-
-            p.setValues(position.getRow() + 1, position.getColumn() - 1);
-            if (getBoard().positionExists(p) && isThereOpponentPiece(p))
-                matrix[p.getRow()][p.getColumn()] = true;
-
-            p.setValues(position.getRow() + 1, position.getColumn() + 1);
-            if (getBoard().positionExists(p) && isThereOpponentPiece(p))
-                matrix[p.getRow()][p.getColumn()] = true;
-
-            // #specialmove en passant blue
-            if (position.getRow() == 4) {
-
-                Position left = new Position(position.getRow(), position.getColumn() - 1);
-                if (getBoard().positionExists(left) && isThereOpponentPiece(left) && getBoard().piece(left) == chessMatch.getEnPassantVulnerable())
-                    matrix[left.getRow() + 1][left.getColumn()] = true;
-
-                Position right = new Position(position.getRow(), position.getColumn() + 1);
-                if (getBoard().positionExists(right) && isThereOpponentPiece(right) && getBoard().piece(right) == chessMatch.getEnPassantVulnerable())
-                    matrix[right.getRow() + 1][right.getColumn()] = true;
-            }
-        }
-
-        return matrix;
+    public String toString() {
+        return "P";
     }
 }
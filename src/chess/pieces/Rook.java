@@ -1,61 +1,18 @@
 package chess.pieces;
 
-import boardgame.Board;
-import boardgame.Position;
 import chess.ChessPiece;
 import chess.Color;
+import chess.PieceType;
 
 public class Rook extends ChessPiece {
 
-    public Rook(Board board, Color color) {
-        super(board, color);
+    public Rook(Color color) {
+        super(color);
     }
 
     @Override
-    public boolean[][] possibleMoves() {
-        boolean[][] matriz = new boolean[getBoard().getRows()][getBoard().getColumns()];
-        Position p = new Position(0, 0);
-
-        /// Above
-        p.setValues(position.getRow() - 1, position.getColumn());
-        while (getBoard().positionExists(p) && !getBoard().thereIsAPiece(p)) {
-            matriz[p.getRow()][p.getColumn()] = true;
-            p.setRow(p.getRow() - 1);
-        }
-        if (getBoard().positionExists(p) && isThereOpponentPiece(p))
-            matriz[p.getRow()][p.getColumn()] = true;
-
-
-        /// Left
-        p.setValues(position.getRow(), position.getColumn() - 1);
-        while (getBoard().positionExists(p) && !getBoard().thereIsAPiece(p)) {
-            matriz[p.getRow()][p.getColumn()] = true;
-            p.setColumn(p.getColumn() - 1);
-        }
-        if (getBoard().positionExists(p) && isThereOpponentPiece(p))
-            matriz[p.getRow()][p.getColumn()] = true;
-
-
-        /// Right
-        p.setValues(position.getRow(), position.getColumn() + 1);
-        while (getBoard().positionExists(p) && !getBoard().thereIsAPiece(p)) {
-            matriz[p.getRow()][p.getColumn()] = true;
-            p.setColumn(p.getColumn() + 1);
-        }
-        if (getBoard().positionExists(p) && isThereOpponentPiece(p))
-            matriz[p.getRow()][p.getColumn()] = true;
-
-
-        /// Below
-        p.setValues(position.getRow() + 1, position.getColumn());
-        while (getBoard().positionExists(p) && !getBoard().thereIsAPiece(p)) {
-            matriz[p.getRow()][p.getColumn()] = true;
-            p.setRow(p.getRow() + 1);
-        }
-        if (getBoard().positionExists(p) && isThereOpponentPiece(p))
-            matriz[p.getRow()][p.getColumn()] = true;
-
-        return matriz;
+    public PieceType getType() {
+        return PieceType.ROOK;
     }
 
     @Override